@@ -0,0 +1,149 @@
+package com.archival.archivalservice.appmodels;
+
+import com.archival.archivalservice.enums.CheckpointStatus;
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.annotation.CreatedDate;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+@Entity
+@Table(name = "archival_checkpoints")
+public class ArchivalCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "table_name")
+    private String tableName;
+
+    @Column(name = "run_id")
+    private String runId;
+
+    @Column(name = "range_lower")
+    private LocalDateTime rangeLower;
+
+    @Column(name = "range_upper")
+    private LocalDateTime rangeUpper;
+
+    @Column(name = "committed_key", columnDefinition = "TEXT")
+    private String committedKey; // keyset position up to which rows are copied and purged
+
+    @Column(name = "copied_key", columnDefinition = "TEXT")
+    private String copiedKey; // keyset position up to which rows are copied into the archive
+
+    @Column(name = "copied_keys", columnDefinition = "TEXT")
+    private String copiedKeys; // primary keys of the rows copied since the committed key, null when only the range is known
+
+    @Column(name = "rows_archived")
+    private Long rowsArchived;
+
+    @Enumerated(EnumType.STRING)
+    private CheckpointStatus status;
+
+    @CreatedDate
+    @Column(name = "created_date_time", insertable = false, updatable = false, columnDefinition = "TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP")
+    private Date createdDateTime;
+
+    @UpdateTimestamp
+    @Column(name = "updated_date_time", columnDefinition = "TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP")
+    private Date updatedDateTime;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public void setRunId(String runId) {
+        this.runId = runId;
+    }
+
+    public LocalDateTime getRangeLower() {
+        return rangeLower;
+    }
+
+    public void setRangeLower(LocalDateTime rangeLower) {
+        this.rangeLower = rangeLower;
+    }
+
+    public LocalDateTime getRangeUpper() {
+        return rangeUpper;
+    }
+
+    public void setRangeUpper(LocalDateTime rangeUpper) {
+        this.rangeUpper = rangeUpper;
+    }
+
+    public String getCommittedKey() {
+        return committedKey;
+    }
+
+    public void setCommittedKey(String committedKey) {
+        this.committedKey = committedKey;
+    }
+
+    public String getCopiedKey() {
+        return copiedKey;
+    }
+
+    public void setCopiedKey(String copiedKey) {
+        this.copiedKey = copiedKey;
+    }
+
+    public String getCopiedKeys() {
+        return copiedKeys;
+    }
+
+    public void setCopiedKeys(String copiedKeys) {
+        this.copiedKeys = copiedKeys;
+    }
+
+    public Long getRowsArchived() {
+        return rowsArchived;
+    }
+
+    public void setRowsArchived(Long rowsArchived) {
+        this.rowsArchived = rowsArchived;
+    }
+
+    public CheckpointStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CheckpointStatus status) {
+        this.status = status;
+    }
+
+    public Date getCreatedDateTime() {
+        return createdDateTime;
+    }
+
+    public void setCreatedDateTime(Date createdDateTime) {
+        this.createdDateTime = createdDateTime;
+    }
+
+    public Date getUpdatedDateTime() {
+        return updatedDateTime;
+    }
+
+    public void setUpdatedDateTime(Date updatedDateTime) {
+        this.updatedDateTime = updatedDateTime;
+    }
+}
@@ -1,10 +1,12 @@
 package com.archival.archivalservice.appmodels;
 
+import com.archival.archivalservice.enums.ArchivalMode;
 import com.archival.archivalservice.enums.ArchivalTimeUnit;
 import jakarta.persistence.*;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 
+import java.time.LocalDateTime;
 import java.util.Date;
 
 @Entity
@@ -29,6 +31,39 @@ public class ArchivalConfiguration {
 
     private String archivalColumnName;
 
+    @Enumerated(EnumType.STRING)
+    private ArchivalMode archivalMode;
+
+    private Integer chunkSize;
+
+    private Integer workerCount;
+
+    private Integer sliceSize;
+
+    @Enumerated(EnumType.STRING)
+    private ArchivalTimeUnit sliceTimeUnit;
+
+    private Integer deleteBatchSize;
+
+    private Integer minChunkSize;
+
+    private Integer maxChunkSize;
+
+    private Integer targetChunkMillis;
+
+    private Integer maxChunkDelayMillis;
+
+    private Integer maxActiveSessions;
+
+    @Enumerated(EnumType.STRING)
+    private ArchivalTimeUnit archivePartitionUnit;
+
+    private String archivalSink;
+
+    private String rollupColumns;
+
+    private LocalDateTime lastArchivedThreshold;
+
     @Basic
     @CreatedDate
     @Column(insertable = false, updatable = false, columnDefinition = "TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP")
@@ -102,4 +137,124 @@ public class ArchivalConfiguration {
     public void setArchivalColumnName(String archivalColumnName) {
         this.archivalColumnName = archivalColumnName;
     }
+
+    public ArchivalMode getArchivalMode() {
+        return archivalMode;
+    }
+
+    public void setArchivalMode(ArchivalMode archivalMode) {
+        this.archivalMode = archivalMode;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Integer getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(Integer workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public Integer getSliceSize() {
+        return sliceSize;
+    }
+
+    public void setSliceSize(Integer sliceSize) {
+        this.sliceSize = sliceSize;
+    }
+
+    public ArchivalTimeUnit getSliceTimeUnit() {
+        return sliceTimeUnit;
+    }
+
+    public void setSliceTimeUnit(ArchivalTimeUnit sliceTimeUnit) {
+        this.sliceTimeUnit = sliceTimeUnit;
+    }
+
+    public Integer getDeleteBatchSize() {
+        return deleteBatchSize;
+    }
+
+    public void setDeleteBatchSize(Integer deleteBatchSize) {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    public LocalDateTime getLastArchivedThreshold() {
+        return lastArchivedThreshold;
+    }
+
+    public void setLastArchivedThreshold(LocalDateTime lastArchivedThreshold) {
+        this.lastArchivedThreshold = lastArchivedThreshold;
+    }
+
+    public Integer getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    public void setMinChunkSize(Integer minChunkSize) {
+        this.minChunkSize = minChunkSize;
+    }
+
+    public Integer getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public void setMaxChunkSize(Integer maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    public Integer getTargetChunkMillis() {
+        return targetChunkMillis;
+    }
+
+    public void setTargetChunkMillis(Integer targetChunkMillis) {
+        this.targetChunkMillis = targetChunkMillis;
+    }
+
+    public Integer getMaxChunkDelayMillis() {
+        return maxChunkDelayMillis;
+    }
+
+    public void setMaxChunkDelayMillis(Integer maxChunkDelayMillis) {
+        this.maxChunkDelayMillis = maxChunkDelayMillis;
+    }
+
+    public Integer getMaxActiveSessions() {
+        return maxActiveSessions;
+    }
+
+    public void setMaxActiveSessions(Integer maxActiveSessions) {
+        this.maxActiveSessions = maxActiveSessions;
+    }
+
+    public ArchivalTimeUnit getArchivePartitionUnit() {
+        return archivePartitionUnit;
+    }
+
+    public void setArchivePartitionUnit(ArchivalTimeUnit archivePartitionUnit) {
+        this.archivePartitionUnit = archivePartitionUnit;
+    }
+
+    public String getArchivalSink() {
+        return archivalSink;
+    }
+
+    public void setArchivalSink(String archivalSink) {
+        this.archivalSink = archivalSink;
+    }
+
+    public String getRollupColumns() {
+        return rollupColumns;
+    }
+
+    public void setRollupColumns(String rollupColumns) {
+        this.rollupColumns = rollupColumns;
+    }
 }
@@ -0,0 +1,21 @@
+package com.archival.archivalservice.apprepository;
+
+import com.archival.archivalservice.appmodels.ArchivalCheckpoint;
+import com.archival.archivalservice.enums.CheckpointStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ArchivalCheckpointRepository extends JpaRepository<ArchivalCheckpoint, Long> {
+
+    List<ArchivalCheckpoint> findByTableNameAndStatusOrderByIdDesc(String tableName, CheckpointStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ArchivalCheckpoint c WHERE c.status <> :status AND c.updatedDateTime < :before")
+    int deleteFinishedBefore(CheckpointStatus status, Date before);
+}
@@ -2,9 +2,18 @@ package com.archival.archivalservice.apprepository;
 
 import com.archival.archivalservice.appmodels.ArchivalConfiguration;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface ArchivalCriteriaRepository extends JpaRepository<ArchivalConfiguration, String> {
     Optional<ArchivalConfiguration> findByTableName(String tableName);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArchivalConfiguration c SET c.lastArchivedThreshold = :threshold WHERE c.tableName = :tableName")
+    int updateLastArchivedThreshold(String tableName, LocalDateTime threshold);
 }
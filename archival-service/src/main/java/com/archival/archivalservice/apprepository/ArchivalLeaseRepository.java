@@ -0,0 +1,41 @@
+package com.archival.archivalservice.apprepository;
+
+import com.archival.archivalservice.appmodels.ArchivalLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface ArchivalLeaseRepository extends JpaRepository<ArchivalLease, String> {
+
+    @Query(value = "SELECT CAST(now() AS TIMESTAMP)", nativeQuery = true)
+    LocalDateTime currentTime();
+
+    /**
+     * Takes the lease of a table if it is free or expired, unless another instance finished the table after
+     * {@code runStartedAt}. All times come from the database clock, so instances need not agree on theirs.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO archival_leases (table_name, owner, expires_at) "
+            + "VALUES (:tableName, :owner, now() + make_interval(secs => :ttlSeconds)) "
+            + "ON CONFLICT (table_name) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at "
+            + "WHERE (archival_leases.expires_at < now() OR archival_leases.owner = :owner) "
+            + "AND (archival_leases.finished_at IS NULL OR archival_leases.finished_at < :runStartedAt)", nativeQuery = true)
+    int acquire(String tableName, String owner, long ttlSeconds, LocalDateTime runStartedAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE archival_leases SET expires_at = now() + make_interval(secs => :ttlSeconds) "
+            + "WHERE table_name = :tableName AND owner = :owner AND expires_at >= now()", nativeQuery = true)
+    int renew(String tableName, String owner, long ttlSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE archival_leases SET expires_at = now(), "
+            + "finished_at = CASE WHEN :finished THEN now() ELSE finished_at END "
+            + "WHERE table_name = :tableName AND owner = :owner", nativeQuery = true)
+    int release(String tableName, String owner, boolean finished);
+}
@@ -3,7 +3,6 @@ package com.archival.archivalservice.config;
 import jakarta.persistence.EntityManagerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,7 +30,13 @@ public class AppDatabaseConfig {
     @Primary
     @ConfigurationProperties(prefix = "spring.datasource.app")
     public DataSource appDataSource() {
-        return DataSourceBuilder.create().build();
+        return DataSourcePools.interactivePool("app-interactive");
+    }
+
+    @Bean(name = "appBatchDataSource")
+    @ConfigurationProperties(prefix = "spring.datasource.app.batch")
+    public DataSource appBatchDataSource(@Qualifier("appDataSource") DataSource appDataSource) {
+        return DataSourcePools.batchPool(appDataSource, "app-batch");
     }
 
     @Primary
@@ -3,7 +3,6 @@ package com.archival.archivalservice.config;
 import jakarta.persistence.EntityManagerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,7 +28,19 @@ public class ArchivalDatabaseConfig {
     @Bean(name = "archivalDataSource")
     @ConfigurationProperties(prefix = "spring.datasource.archival")
     public DataSource archivalDataSource() {
-        return DataSourceBuilder.create().build();
+        return DataSourcePools.interactivePool("archival-interactive");
+    }
+
+    @Bean(name = "archivalBatchDataSource")
+    @ConfigurationProperties(prefix = "spring.datasource.archival.batch")
+    public DataSource archivalBatchDataSource(@Qualifier("archivalDataSource") DataSource archivalDataSource) {
+        return DataSourcePools.batchPool(archivalDataSource, "archival-batch");
+    }
+
+    @Bean(name = "archivalExportDataSource")
+    @ConfigurationProperties(prefix = "spring.datasource.archival.export")
+    public DataSource archivalExportDataSource(@Qualifier("archivalDataSource") DataSource archivalDataSource) {
+        return DataSourcePools.exportPool(archivalDataSource, "archival-export");
     }
 
     @Bean(name = "archivalEntityManagerFactory")
@@ -0,0 +1,60 @@
+package com.archival.archivalservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the interactive and batch connection pools of a database. Both pools connect with the same settings,
+ * but the batch pool is sized and timed for long archival work so it cannot exhaust the interactive one. Exports
+ * of archived data get a small pool of their own for the same reason.
+ * Values bound from {@code spring.datasource.<name>} and {@code spring.datasource.<name>.batch} override
+ * these defaults.
+ */
+final class DataSourcePools {
+
+    private DataSourcePools() {
+    }
+
+    static HikariDataSource interactivePool(String poolName) {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class).build();
+        dataSource.setPoolName(poolName);
+        dataSource.setConnectionTimeout(TimeUnit.SECONDS.toMillis(10));
+        dataSource.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(30));
+        return dataSource;
+    }
+
+    static HikariDataSource batchPool(DataSource interactive, String poolName) {
+        HikariDataSource source = (HikariDataSource) interactive;
+        HikariDataSource dataSource = new HikariDataSource();
+        source.copyStateTo(dataSource);
+        dataSource.setDataSourceProperties(source.getDataSourceProperties());
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(8);
+        // archival runs are rare, so the batch pool holds no connections between them
+        dataSource.setMinimumIdle(0);
+        dataSource.setIdleTimeout(TimeUnit.MINUTES.toMillis(1));
+        dataSource.setConnectionTimeout(TimeUnit.MINUTES.toMillis(2));
+        // a pipelined or COPY range legitimately keeps its connection for a long time
+        dataSource.setLeakDetectionThreshold(TimeUnit.MINUTES.toMillis(30));
+        return dataSource;
+    }
+
+    static HikariDataSource exportPool(DataSource interactive, String poolName) {
+        HikariDataSource source = (HikariDataSource) interactive;
+        HikariDataSource dataSource = new HikariDataSource();
+        source.copyStateTo(dataSource);
+        dataSource.setDataSourceProperties(source.getDataSourceProperties());
+        dataSource.setPoolName(poolName);
+        // each export streams one cursor for as long as the client reads, so only a few run at once
+        dataSource.setMaximumPoolSize(4);
+        dataSource.setMinimumIdle(0);
+        dataSource.setIdleTimeout(TimeUnit.MINUTES.toMillis(1));
+        // a caller waiting for an export slot is a user, not a scheduled run
+        dataSource.setConnectionTimeout(TimeUnit.SECONDS.toMillis(10));
+        dataSource.setLeakDetectionThreshold(TimeUnit.HOURS.toMillis(2));
+        return dataSource;
+    }
+}
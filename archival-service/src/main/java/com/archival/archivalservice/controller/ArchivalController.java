@@ -1,20 +1,36 @@
 package com.archival.archivalservice.controller;
 
+import com.archival.archivalservice.dto.ArchivalAggregate;
 import com.archival.archivalservice.dto.ArchivalConfigurationDto;
+import com.archival.archivalservice.dto.ArchivalJob;
 import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.ArchivedDataPage;
+import com.archival.archivalservice.dto.Constants;
 import com.archival.archivalservice.dto.UserTableAssignmentDto;
+import com.archival.archivalservice.enums.ExportFormat;
+import com.archival.archivalservice.exception.EntityDoesNotExistException;
 import com.archival.archivalservice.exception.PermissionDeniedException;
+import com.archival.archivalservice.exception.TableBusyException;
+import com.archival.archivalservice.service.ArchivalJobService;
 import com.archival.archivalservice.service.ArchivalService;
+import com.archival.archivalservice.service.ArchivedDataExport;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -27,6 +43,12 @@ public class ArchivalController {
     @Autowired
     private ArchivalService archivalService;
 
+    @Autowired
+    private ArchivalJobService archivalJobService;
+
+    @Value("${archival.export.timeout-minutes:60}")
+    private long exportTimeoutMinutes;
+
     @PutMapping("/configuration")
     public ResponseEntity<ArchivalConfigurationDto> setArchivalCriteria(@RequestBody ArchivalConfigurationDto dto) throws PermissionDeniedException {
         ArchivalConfigurationDto archivalConfigurationDto = this.archivalService.configureTableArchivalSetting(dto);
@@ -41,9 +63,27 @@ public class ArchivalController {
 
     @PostMapping("/run-now")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> runArchivalNow() {
-        archivalService.archiveData();
-        return ResponseEntity.ok("Archival process triggered successfully.");
+    public ResponseEntity<ArchivalJob> runArchivalNow() {
+        ArchivalJob job = archivalJobService.submit();
+        return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ArchivalJob>> getArchivalJobs() {
+        return new ResponseEntity<>(archivalJobService.getJobs(), HttpStatus.OK);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ArchivalJob> getArchivalJob(@PathVariable String jobId) throws EntityDoesNotExistException {
+        return new ResponseEntity<>(archivalJobService.getJob(jobId), HttpStatus.OK);
+    }
+
+    @PostMapping("/jobs/{jobId}/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ArchivalJob> cancelArchivalJob(@PathVariable String jobId) throws EntityDoesNotExistException {
+        return new ResponseEntity<>(archivalJobService.cancel(jobId), HttpStatus.ACCEPTED);
     }
 
     @PutMapping("/assign-tables")
@@ -58,14 +98,73 @@ public class ArchivalController {
             @PathVariable String tableName,
             @ModelAttribute ArchivalQueryDTO queryParams) throws Exception, PermissionDeniedException {
 
+        applyDefaultRange(queryParams);
+        ArchivedDataPage page = archivalService.getArchivedData(tableName, queryParams);
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getContinuationToken() != null) {
+            headers.set(Constants.CONTINUATION_TOKEN_HEADER, page.getContinuationToken());
+        }
+        return new ResponseEntity<>(page.getRecords(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Streams every archived row of the range as NDJSON or CSV, reading it through a database cursor instead of
+     * building the result in memory. The stream may run for {@code archival.export.timeout-minutes}, longer than the
+     * other asynchronous requests are given.
+     */
+    @GetMapping("/data/{tableName}/export")
+    public WebAsyncTask<Void> exportArchivedRecords(
+            @PathVariable String tableName,
+            @ModelAttribute ArchivalQueryDTO queryParams,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws SQLException, IOException, PermissionDeniedException {
+
+        applyDefaultRange(queryParams);
+        ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        ArchivedDataExport export = archivalService.exportArchivedData(tableName, queryParams, exportFormat);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + export.getArchiveTableName() + "." + exportFormat.getExtension() + "\"");
+        return new WebAsyncTask<>(TimeUnit.MINUTES.toMillis(exportTimeoutMinutes), () -> {
+            export.writeTo(response.getOutputStream());
+            return null;
+        });
+    }
+
+    /**
+     * Counts, and for a rollup {@code column} the min, max and sum, of the archived rows per {@code bucket} of the
+     * archival column, served from the rollups kept during archival.
+     */
+    @GetMapping("/aggregates/{tableName}")
+    public ResponseEntity<List<ArchivalAggregate>> getArchivedAggregates(
+            @PathVariable String tableName,
+            @ModelAttribute ArchivalQueryDTO queryParams,
+            @RequestParam(defaultValue = "day") String bucket,
+            @RequestParam(required = false) String column) throws PermissionDeniedException {
+
+        List<ArchivalAggregate> aggregates = archivalService.getArchivedAggregates(tableName, bucket, queryParams.getStartDate(),
+                queryParams.getEndDate(), column);
+        return new ResponseEntity<>(aggregates, HttpStatus.OK);
+    }
+
+    @PostMapping("/aggregates/{tableName}/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> rebuildArchivedAggregates(@PathVariable String tableName)
+            throws EntityDoesNotExistException, TableBusyException, SQLException {
+        return new ResponseEntity<>(Map.of("records", archivalService.rebuildRollups(tableName)), HttpStatus.OK);
+    }
+
+    /**
+     * Defaults to the last 30 days. The bounds are whole minutes, so polling clients repeat the same query and hit
+     * the result cache.
+     */
+    private static void applyDefaultRange(ArchivalQueryDTO queryParams) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         if (queryParams.getStartDate() == null) {
-            queryParams.setStartDate(LocalDateTime.now().minusDays(30));
+            queryParams.setStartDate(now.minusDays(30));
         }
         if (queryParams.getEndDate() == null) {
-            queryParams.setEndDate(LocalDateTime.now());
+            queryParams.setEndDate(now.plusMinutes(1));
         }
-
-        List<Map<String, Object>> data = archivalService.getArchivedData(tableName, queryParams);
-        return new ResponseEntity(data, HttpStatus.OK);
     }
-}
\ No newline at end of file
+}
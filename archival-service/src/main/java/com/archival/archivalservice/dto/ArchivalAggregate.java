@@ -0,0 +1,57 @@
+package com.archival.archivalservice.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The archived rows of one time bucket of a table: how many there are and, when a rollup column was requested, the
+ * minimum, maximum and sum of its values.
+ */
+public class ArchivalAggregate {
+
+    private LocalDateTime bucketStart;
+    private long count;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal sum;
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    public void setMin(BigDecimal min) {
+        this.min = min;
+    }
+
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    public void setMax(BigDecimal max) {
+        this.max = max;
+    }
+
+    public BigDecimal getSum() {
+        return sum;
+    }
+
+    public void setSum(BigDecimal sum) {
+        this.sum = sum;
+    }
+}
@@ -0,0 +1,87 @@
+package com.archival.archivalservice.dto;
+
+import com.archival.archivalservice.enums.ArchivalJobStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One archival run over all configured tables, with the live progress of each table. Jobs submitted through
+ * the API are kept in memory by their id.
+ */
+public class ArchivalJob {
+    private final String jobId;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile ArchivalJobStatus status = ArchivalJobStatus.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String errorMessage;
+    private volatile boolean cancelled;
+    private final Map<String, ArchivalTableProgress> tables = new ConcurrentHashMap<>();
+
+    public ArchivalJob(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public ArchivalJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ArchivalJobStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public List<ArchivalTableProgress> getTables() {
+        List<ArchivalTableProgress> progress = new ArrayList<>(tables.values());
+        progress.sort(Comparator.comparing(ArchivalTableProgress::getTableName));
+        return progress;
+    }
+
+    public ArchivalTableProgress table(String tableName) {
+        return tables.computeIfAbsent(tableName, name -> new ArchivalTableProgress(name, this));
+    }
+}
@@ -3,6 +3,7 @@ package com.archival.archivalservice.dto;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class ArchivalQueryDTO {
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
@@ -13,6 +14,9 @@ public class ArchivalQueryDTO {
     private Integer page = 0;
     private Integer size = 10;
     private String sort = "desc";
+    private String continuationToken;
+    private List<String> fields;
+    private List<String> filter;
 
     public LocalDateTime getStartDate() {
         return startDate;
@@ -53,4 +57,32 @@ public class ArchivalQueryDTO {
     public void setSort(String sort) {
         this.sort = sort;
     }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Column predicates as {@code column:operator:value}, with the operators {@code eq}, {@code lt}, {@code lte},
+     * {@code gt}, {@code gte} and {@code in}, whose values are separated by {@code |}.
+     */
+    public List<String> getFilter() {
+        return filter;
+    }
+
+    public void setFilter(List<String> filter) {
+        this.filter = filter;
+    }
 }
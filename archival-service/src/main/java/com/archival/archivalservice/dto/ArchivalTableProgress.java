@@ -0,0 +1,105 @@
+package com.archival.archivalservice.dto;
+
+import com.archival.archivalservice.enums.ArchivalJobStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one table within an {@link ArchivalJob}, updated by the archival workers as chunks complete.
+ */
+public class ArchivalTableProgress {
+    private final String tableName;
+    private final ArchivalJob job;
+    private final LongAdder scannedRecords = new LongAdder();
+    private final LongAdder copiedRecords = new LongAdder();
+    private final LongAdder purgedRecords = new LongAdder();
+    private final LongAdder deletedRecords = new LongAdder();
+    private volatile ArchivalJobStatus status = ArchivalJobStatus.QUEUED;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String errorMessage;
+
+    ArchivalTableProgress(String tableName, ArchivalJob job) {
+        this.tableName = tableName;
+        this.job = job;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public ArchivalJobStatus getStatus() {
+        return status;
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+        status = ArchivalJobStatus.RUNNING;
+    }
+
+    public void finish(ArchivalJobStatus status, String errorMessage) {
+        endNanos = System.nanoTime();
+        this.status = status;
+        this.errorMessage = errorMessage;
+    }
+
+    public void skip() {
+        status = ArchivalJobStatus.SKIPPED;
+    }
+
+    public boolean isCancelled() {
+        return job.isCancelled();
+    }
+
+    public long getScannedRecords() {
+        return scannedRecords.sum();
+    }
+
+    public long getCopiedRecords() {
+        return copiedRecords.sum();
+    }
+
+    public long getPurgedRecords() {
+        return purgedRecords.sum();
+    }
+
+    public long getDeletedRecords() {
+        return deletedRecords.sum();
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getDurationMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos);
+    }
+
+    /**
+     * Copied records per second since the table started.
+     */
+    public long getRecordsPerSecond() {
+        long millis = getDurationMillis();
+        return millis > 0 ? getCopiedRecords() * 1000 / millis : 0;
+    }
+
+    public void scanned(long records) {
+        scannedRecords.add(records);
+    }
+
+    public void copied(long records) {
+        copiedRecords.add(records);
+    }
+
+    public void purged(long records) {
+        purgedRecords.add(records);
+    }
+
+    public void deleted(long records) {
+        deletedRecords.add(records);
+    }
+}
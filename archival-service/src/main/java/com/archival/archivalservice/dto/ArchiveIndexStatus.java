@@ -0,0 +1,55 @@
+package com.archival.archivalservice.dto;
+
+import com.archival.archivalservice.enums.ArchiveIndexState;
+
+/**
+ * Whether an index that the archived-data queries or the retention delete of an archive table rely on exists.
+ */
+public class ArchiveIndexStatus {
+
+    private String indexName;
+    private String method;
+    private String columns;
+    private ArchiveIndexState state;
+    private String message;
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public void setIndexName(String indexName) {
+        this.indexName = indexName;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getColumns() {
+        return columns;
+    }
+
+    public void setColumns(String columns) {
+        this.columns = columns;
+    }
+
+    public ArchiveIndexState getState() {
+        return state;
+    }
+
+    public void setState(ArchiveIndexState state) {
+        this.state = state;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,26 @@
+package com.archival.archivalservice.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of archived rows and the token that continues after its last row, or {@code null} on the last page.
+ */
+public class ArchivedDataPage {
+
+    private final List<Map<String, Object>> records;
+    private final String continuationToken;
+
+    public ArchivedDataPage(List<Map<String, Object>> records, String continuationToken) {
+        this.records = records;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<Map<String, Object>> getRecords() {
+        return records;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+}
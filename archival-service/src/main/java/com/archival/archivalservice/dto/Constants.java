@@ -1,11 +1,16 @@
 package com.archival.archivalservice.dto;
 
+import java.util.Map;
+
 public final class Constants {
     // Constants for string literals
     public static final String ARCHIVAL_TABLE_SUFFIX = "_archive";
     public static final String SCHEDULER_ARCHIVE_CRON_PROPERTY = "scheduler.archive.cron";
     public static final String APP_DATA_SOURCE_QUALIFIER = "appDataSource";
     public static final String ARCHIVAL_DATA_SOURCE_QUALIFIER = "archivalDataSource";
+    public static final String APP_BATCH_DATA_SOURCE_QUALIFIER = "appBatchDataSource";
+    public static final String ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER = "archivalBatchDataSource";
+    public static final String ARCHIVAL_EXPORT_DATA_SOURCE_QUALIFIER = "archivalExportDataSource";
     public static final String PERMISSION_DENIED_MESSAGE_PREFIX = "User does not have permission to configure configuration on this table ";
     public static final String TABLE_NAME_FIELD = "tableName";
     public static final String ARCHIVE_AFTER_FIELD = "archiveAfter";
@@ -24,6 +29,31 @@ public final class Constants {
     public static final String UNSUPPORTED_TIME_UNIT_MESSAGE = "Unsupported time unit: ";
     public static final String COLUMN_NAME_FIELD = "COLUMN_NAME";
     public static final String NO_COLUMNS_FOUND_MESSAGE = "No columns found for table: ";
+    public static final String COLUMN_NOT_FOUND_MESSAGE = "Column not found: ";
+    public static final String KEY_SEQ_FIELD = "KEY_SEQ";
+    public static final String DATA_TYPE_FIELD = "DATA_TYPE";
+    public static final String PARTITION_KEY_QUERY = "SELECT pg_get_partkeydef(to_regclass(?))";
+    public static final String RANGE_PARTITION_KEY_PREFIX = "RANGE (";
+    public static final String LEAF_PARTITIONS_QUERY = "SELECT c.oid::regclass::text, pg_get_expr(c.relpartbound, c.oid) "
+            + "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?) AND c.relkind = 'r'";
+    public static final String JDBC_SINK = "jdbc";
+    public static final String SEGMENT_SINK = "segment";
+    public static final String UNKNOWN_SINK_MESSAGE = "Unknown archival sink: ";
+    public static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+    public static final int EXPORT_PAGE_SIZE = 1000;
+    public static final String INVALID_FILTER_MESSAGE = "Invalid filter, expected column:eq|lt|lte|gt|gte|in:value: ";
+    public static final Map<String, String> FILTER_OPERATORS = Map.of("eq", "=", "lt", "<", "lte", "<=", "gt", ">", "gte", ">=", "in", "IN");
+    public static final String CONTINUATION_TOKEN_MISMATCH_MESSAGE = "Continuation token does not match the sort order or the key of table: ";
+    public static final String TABLE_INDEXES_QUERY = "SELECT i.relname, am.amname, x.indisvalid, "
+            + "ARRAY(SELECT a.attname FROM unnest(x.indkey::int2[]) WITH ORDINALITY AS k(attnum, ord) "
+            + "JOIN pg_attribute a ON a.attrelid = x.indrelid AND a.attnum = k.attnum ORDER BY k.ord)::text[] "
+            + "FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid JOIN pg_am am ON am.oid = i.relam WHERE x.indrelid = to_regclass(?)";
+    public static final String INDEX_VALID_QUERY = "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)";
+    public static final String INDEX_ATTACHED_QUERY = "SELECT EXISTS (SELECT 1 FROM pg_inherits "
+            + "WHERE inhrelid = to_regclass(?) AND inhparent = to_regclass(?))";
+    public static final String ROLLUP_ALL_COLUMNS = "*";
+    public static final String TABLE_BUSY_MESSAGE = "Table is being archived, try again once the run finishes: ";
+    public static final String INVALID_BUCKET_MESSAGE = "Invalid bucket, expected hour, day, week, month or year: ";
     public static final String ROLE_PREFIX = "ROLE_";
     public static final String ADMIN_ROLE = "ADMIN";
     public static final String COMMA_SEPARATOR = ",";
@@ -33,7 +63,10 @@ public final class Constants {
     public static final String DESC_SORT_UPPER = "DESC";
     public static final String ORDER_BY_CLAUSE = " ORDER BY created_at ";
     public static final String LIMIT_OFFSET_CLAUSE = " LIMIT ? OFFSET ?";
+    public static final String LIMIT_CLAUSE = " LIMIT ?";
+    public static final String ORDER_BY = " ORDER BY ";
     public static final String AND_CLAUSE = " AND ";
+    public static final String DATABASE_LOCATION_QUERY = "SELECT current_database(), host(inet_server_addr()), inet_server_port()::text";
     public static final String GREATER_THAN_EQUAL_CLAUSE = "created_at >= ?";
     public static final String LESS_THAN_EQUAL_CLAUSE = "created_at <= ?";
 }
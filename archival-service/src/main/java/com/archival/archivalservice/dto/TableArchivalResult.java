@@ -0,0 +1,62 @@
+package com.archival.archivalservice.dto;
+
+public class TableArchivalResult {
+    private String tableName;
+    private long archivedRecords;
+    private long deletedRecords;
+    private long durationMillis;
+    private boolean success;
+    private String errorMessage;
+
+    public TableArchivalResult(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public long getArchivedRecords() {
+        return archivedRecords;
+    }
+
+    public void setArchivedRecords(long archivedRecords) {
+        this.archivedRecords = archivedRecords;
+    }
+
+    public long getDeletedRecords() {
+        return deletedRecords;
+    }
+
+    public void setDeletedRecords(long deletedRecords) {
+        this.deletedRecords = deletedRecords;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
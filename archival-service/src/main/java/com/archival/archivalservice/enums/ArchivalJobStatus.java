@@ -0,0 +1,5 @@
+package com.archival.archivalservice.enums;
+
+public enum ArchivalJobStatus {
+    QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, SKIPPED;
+}
@@ -0,0 +1,5 @@
+package com.archival.archivalservice.enums;
+
+public enum ArchivalMode {
+    SINGLE_PASS, CHUNKED, PIPELINED, COPY, SERVER_SIDE;
+}
@@ -0,0 +1,5 @@
+package com.archival.archivalservice.enums;
+
+public enum ArchiveIndexState {
+    PRESENT, BUILDING, MISSING, INVALID, FAILED;
+}
@@ -0,0 +1,5 @@
+package com.archival.archivalservice.enums;
+
+public enum CheckpointStatus {
+    IN_PROGRESS, COMPLETED, RECOVERED;
+}
@@ -8,6 +8,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * @author Naveen Kumar
  */
@@ -27,6 +29,23 @@ public class ControllerExceptionHandler {
         return new MessageResponse(ex.getMessage());
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    protected MessageResponse illegalArgumentException(final IllegalArgumentException ex) {
+        return new MessageResponse(ex.getMessage());
+    }
+
+    @ExceptionHandler(TableBusyException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    protected MessageResponse tableBusyException(final TableBusyException ex) {
+        return new MessageResponse(ex.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    protected MessageResponse rejectedExecutionException(final RejectedExecutionException ex) {
+        return new MessageResponse("Too many archival jobs are queued, try again later");
+    }
 
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
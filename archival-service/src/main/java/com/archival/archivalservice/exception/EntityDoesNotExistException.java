@@ -7,6 +7,7 @@ package com.archival.archivalservice.exception;
 public class EntityDoesNotExistException extends Throwable {
 
     public EntityDoesNotExistException(String s) {
+        super(s);
     }
 
     public EntityDoesNotExistException() {
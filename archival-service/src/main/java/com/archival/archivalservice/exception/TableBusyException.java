@@ -0,0 +1,30 @@
+package com.archival.archivalservice.exception;
+
+
+/**
+ * Thrown when a table cannot be worked on because another run currently holds it.
+ */
+public class TableBusyException extends Exception {
+
+    public TableBusyException(String s) {
+        super(s);
+    }
+
+    public TableBusyException() {
+        super();
+    }
+
+    public TableBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public TableBusyException(Throwable cause) {
+        super(cause);
+    }
+
+    protected TableBusyException(String message, Throwable cause, boolean enableSuppression,
+                                 boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+}
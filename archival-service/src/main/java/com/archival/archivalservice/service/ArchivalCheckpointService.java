@@ -0,0 +1,161 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.appmodels.ArchivalCheckpoint;
+import com.archival.archivalservice.apprepository.ArchivalCheckpointRepository;
+import com.archival.archivalservice.enums.CheckpointStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Service;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Persists the keyset position reached by each archival range so an interrupted run can be resumed
+ * instead of starting the table from scratch.
+ */
+@Service
+public class ArchivalCheckpointService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalCheckpointService.class);
+
+    @Autowired
+    private ArchivalCheckpointRepository archivalCheckpointRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${archival.checkpoint.retention-days:7}")
+    private int retentionDays;
+
+    public ArchivalCheckpoint start(String tableName, String runId, LocalDateTime rangeLower, LocalDateTime rangeUpper) {
+        ArchivalCheckpoint checkpoint = new ArchivalCheckpoint();
+        checkpoint.setTableName(tableName);
+        checkpoint.setRunId(runId);
+        checkpoint.setRangeLower(rangeLower);
+        checkpoint.setRangeUpper(rangeUpper);
+        checkpoint.setRowsArchived(0L);
+        checkpoint.setStatus(CheckpointStatus.IN_PROGRESS);
+        return archivalCheckpointRepository.save(checkpoint);
+    }
+
+    /**
+     * Takes over an interrupted checkpoint for the given run. Its range is widened to the new upper bound,
+     * since everything up to its copied key has already been archived.
+     */
+    public ArchivalCheckpoint resume(ArchivalCheckpoint checkpoint, String runId, LocalDateTime rangeUpper) {
+        logger.info("Resuming archival of table {} from checkpoint {} of run {}", checkpoint.getTableName(),
+                checkpoint.getId(), checkpoint.getRunId());
+        checkpoint.setRunId(runId);
+        if (rangeUpper.isAfter(checkpoint.getRangeUpper())) {
+            checkpoint.setRangeUpper(rangeUpper);
+        }
+        checkpoint.setCommittedKey(checkpoint.getCopiedKey());
+        checkpoint.setCopiedKeys(null);
+        return archivalCheckpointRepository.save(checkpoint);
+    }
+
+    public List<ArchivalCheckpoint> findInterrupted(String tableName) {
+        return archivalCheckpointRepository.findByTableNameAndStatusOrderByIdDesc(tableName, CheckpointStatus.IN_PROGRESS);
+    }
+
+    /**
+     * Records that every row up to {@code key} has been committed to the archive. The previously copied
+     * position becomes the committed one, since its purge finished before this chunk was read. {@code copiedKeys}
+     * are the primary keys of exactly the copied rows, or {@code null} when they are not known to the service.
+     */
+    public void recordCopied(ArchivalCheckpoint checkpoint, Object[] key, long rows, List<Object[]> copiedKeys) {
+        checkpoint.setCommittedKey(checkpoint.getCopiedKey());
+        checkpoint.setCopiedKey(encodeKey(key));
+        checkpoint.setCopiedKeys(copiedKeys != null ? encodeKeys(copiedKeys) : null);
+        checkpoint.setRowsArchived(checkpoint.getRowsArchived() + rows);
+        archivalCheckpointRepository.save(checkpoint);
+    }
+
+    public void complete(ArchivalCheckpoint checkpoint) {
+        checkpoint.setCommittedKey(checkpoint.getCopiedKey());
+        checkpoint.setCopiedKeys(null);
+        checkpoint.setStatus(CheckpointStatus.COMPLETED);
+        archivalCheckpointRepository.save(checkpoint);
+    }
+
+    public void markRecovered(ArchivalCheckpoint checkpoint) {
+        checkpoint.setCommittedKey(checkpoint.getCopiedKey());
+        checkpoint.setCopiedKeys(null);
+        checkpoint.setStatus(CheckpointStatus.RECOVERED);
+        archivalCheckpointRepository.save(checkpoint);
+    }
+
+    public int deleteFinishedCheckpoints() {
+        Date before = Date.from(LocalDateTime.now().minusDays(retentionDays).atZone(ZoneId.systemDefault()).toInstant());
+        return archivalCheckpointRepository.deleteFinishedBefore(CheckpointStatus.IN_PROGRESS, before);
+    }
+
+    public String encodeKey(Object[] key) {
+        try {
+            return objectMapper.writeValueAsString(Arrays.stream(key).map(this::keyValueText).toList());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode checkpoint key", e);
+        }
+    }
+
+    public String encodeKeys(List<Object[]> keys) {
+        try {
+            return objectMapper.writeValueAsString(keys.stream()
+                    .map(key -> Arrays.stream(key).map(this::keyValueText).toList()).toList());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode checkpoint keys", e);
+        }
+    }
+
+    /**
+     * Decodes stored primary keys like {@link #decodeKey(String)}.
+     */
+    public List<Object[]> decodeKeys(String encodedKeys) {
+        if (encodedKeys == null) {
+            return null;
+        }
+        try {
+            List<List<String>> keys = objectMapper.readValue(encodedKeys, new TypeReference<List<List<String>>>() {
+            });
+            return keys.stream()
+                    .map(values -> values.stream().map(value -> new SqlParameterValue(Types.OTHER, value)).toArray())
+                    .toList();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to decode checkpoint keys", e);
+        }
+    }
+
+    /**
+     * Decodes a stored key into untyped parameters, leaving it to the database to coerce them to the
+     * types of the keyset columns.
+     */
+    public Object[] decodeKey(String encodedKey) {
+        if (encodedKey == null) {
+            return null;
+        }
+        try {
+            List<String> values = objectMapper.readValue(encodedKey, new TypeReference<List<String>>() {
+            });
+            return values.stream().map(value -> new SqlParameterValue(Types.OTHER, value)).toArray();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to decode checkpoint key " + encodedKey, e);
+        }
+    }
+
+    private String keyValueText(Object value) {
+        if (value instanceof SqlParameterValue parameterValue) {
+            return String.valueOf(parameterValue.getValue());
+        }
+        return String.valueOf(value);
+    }
+}
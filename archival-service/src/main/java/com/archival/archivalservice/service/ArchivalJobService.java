@@ -0,0 +1,169 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalJob;
+import com.archival.archivalservice.enums.ArchivalJobStatus;
+import com.archival.archivalservice.exception.EntityDoesNotExistException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs manually triggered archival jobs in the background and keeps them, with the progress of each table,
+ * for the job API. Only the most recent finished jobs are retained.
+ */
+@Service
+public class ArchivalJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalJobService.class);
+
+    @Autowired
+    private ArchivalService archivalService;
+
+    @Value("${archival.jobs.concurrency:1}")
+    private int concurrency;
+
+    @Value("${archival.jobs.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${archival.jobs.history:50}")
+    private int history;
+
+    private final AtomicInteger jobThreadCounter = new AtomicInteger();
+
+    private final Map<String, ArchivalJob> jobs = new LinkedHashMap<>();
+
+    private final Map<String, Future<?>> futures = new LinkedHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void startExecutor() {
+        int threads = Math.max(1, concurrency);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "archival-job-" + jobThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            jobs.values().forEach(ArchivalJob::cancel);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a run over all configured tables and returns at once.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if too many jobs are already queued
+     */
+    public ArchivalJob submit() {
+        ArchivalJob job = new ArchivalJob(UUID.randomUUID().toString());
+        synchronized (jobs) {
+            Future<?> future = executor.submit(() -> runJob(job));
+            jobs.put(job.getJobId(), job);
+            futures.put(job.getJobId(), future);
+            evictFinishedJobs();
+        }
+        logger.info("Queued archival job {}", job.getJobId());
+        return job;
+    }
+
+    public List<ArchivalJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    public ArchivalJob getJob(String jobId) throws EntityDoesNotExistException {
+        synchronized (jobs) {
+            ArchivalJob job = jobs.get(jobId);
+            if (job == null) {
+                throw new EntityDoesNotExistException("No archival job " + jobId);
+            }
+            return job;
+        }
+    }
+
+    /**
+     * Cancels a job. A queued job never starts and is finished at once. A running one stops every table after its
+     * current chunk, and the run itself sets its final status once the tables have stopped.
+     */
+    public ArchivalJob cancel(String jobId) throws EntityDoesNotExistException {
+        ArchivalJob job = getJob(jobId);
+        Future<?> future;
+        boolean started;
+        synchronized (jobs) {
+            job.cancel();
+            started = job.getStartedAt() != null;
+            // a cancelled task never runs, so nothing else would forget the future of a queued job
+            future = started ? futures.get(jobId) : futures.remove(jobId);
+        }
+        if (!started) {
+            // a running task would be cancelled just as well, so only the not yet started job is finished here
+            if (future != null) {
+                future.cancel(false);
+                // frees its place in the queue right away
+                executor.purge();
+            }
+            job.setStatus(ArchivalJobStatus.CANCELLED);
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        logger.info("Cancelled archival job {}", jobId);
+        return job;
+    }
+
+    private void runJob(ArchivalJob job) {
+        synchronized (jobs) {
+            // cancel decides under the same lock whether the job had started
+            if (job.isCancelled()) {
+                futures.remove(job.getJobId());
+                return;
+            }
+            job.setStartedAt(LocalDateTime.now());
+        }
+        try {
+            archivalService.runArchival(job);
+        } catch (RuntimeException e) {
+            job.setErrorMessage(e.getMessage());
+            job.setStatus(ArchivalJobStatus.FAILED);
+            job.setFinishedAt(LocalDateTime.now());
+            logger.error("Archival job {} failed: {}", job.getJobId(), e.getMessage());
+        } finally {
+            synchronized (jobs) {
+                futures.remove(job.getJobId());
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        Iterator<ArchivalJob> iterator = jobs.values().iterator();
+        while (jobs.size() > history && iterator.hasNext()) {
+            ArchivalJob job = iterator.next();
+            if (job.getFinishedAt() != null) {
+                iterator.remove();
+                futures.remove(job.getJobId());
+            }
+        }
+    }
+}
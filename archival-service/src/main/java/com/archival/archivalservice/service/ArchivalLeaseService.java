@@ -0,0 +1,168 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.apprepository.ArchivalLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates the instances of the service through a lease per table in the app DB, so a table is archived by
+ * one instance at a time and every instance picks up the tables the others have not claimed. Held leases are
+ * renewed in the background, and the lease of an instance that dies expires and can be taken over.
+ */
+@Service
+public class ArchivalLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalLeaseService.class);
+
+    @Autowired
+    private ArchivalLeaseRepository archivalLeaseRepository;
+
+    @Value("${archival.lease.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archival.lease.ttl-seconds:120}")
+    private long ttlSeconds;
+
+    private final String owner = ownerName();
+
+    private final Set<String> inUse = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> lostLeases = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService renewer;
+
+    @PostConstruct
+    public void startRenewer() {
+        if (!enabled) {
+            return;
+        }
+        // the scheduler thread is busy with the archival run itself, so renewals get their own thread
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archival-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, ttlSeconds / 3);
+        renewer.scheduleWithFixedDelay(this::renewLeases, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopRenewer() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    /**
+     * The database time a run starts at. Tables finished by another instance after it are skipped by the run.
+     */
+    public LocalDateTime runStartedAt() {
+        return enabled ? archivalLeaseRepository.currentTime() : LocalDateTime.now();
+    }
+
+    public boolean tryAcquire(String tableName, LocalDateTime runStartedAt) {
+        // a scheduled run and a manual job of this instance must not archive the same table either, nor may a run
+        // start while the one that lost the table's lease has not released it yet
+        if (!inUse.add(tableName)) {
+            logger.info("Table {} is being archived by another job of this instance, skipping it", tableName);
+            return false;
+        }
+        if (!enabled) {
+            return true;
+        }
+        boolean acquired;
+        try {
+            acquired = archivalLeaseRepository.acquire(tableName, owner, ttlSeconds, runStartedAt) > 0;
+            if (!acquired) {
+                logger.info("Table {} is leased by another instance or was archived since {}, skipping it", tableName, runStartedAt);
+            }
+        } catch (RuntimeException e) {
+            // without a lease the table may be in use elsewhere, so it waits for the next run
+            logger.warn("Failed to lease table {}, skipping it: {}", tableName, e.getMessage());
+            acquired = false;
+        }
+        if (acquired) {
+            // only now is there a lease for the renewer to renew
+            heldLeases.add(tableName);
+        } else {
+            inUse.remove(tableName);
+        }
+        return acquired;
+    }
+
+    /**
+     * Whether the lease of a table this instance was archiving could not be renewed, so the table has to be left
+     * to whichever instance holds it now.
+     */
+    public boolean isLost(String tableName) {
+        return lostLeases.contains(tableName);
+    }
+
+    /**
+     * Gives the lease of a table back. A table that was {@code finished} is not taken again by the other
+     * instances within the same run.
+     */
+    public void release(String tableName, boolean finished) {
+        if (heldLeases.remove(tableName) && enabled) {
+            try {
+                archivalLeaseRepository.release(tableName, owner, finished);
+            } catch (RuntimeException e) {
+                // the lease simply expires
+                logger.warn("Failed to release the lease of table {}: {}", tableName, e.getMessage());
+            }
+        }
+        // the table is free for the next run only once its lease is given back
+        synchronized (this) {
+            lostLeases.remove(tableName);
+            inUse.remove(tableName);
+        }
+    }
+
+    void renewLeases() {
+        for (String tableName : heldLeases) {
+            try {
+                if (archivalLeaseRepository.renew(tableName, owner, ttlSeconds) == 0) {
+                    markLost(tableName);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to renew the lease of table {}: {}", tableName, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void markLost(String tableName) {
+        // a lease released while it was being renewed was not lost
+        if (heldLeases.remove(tableName)) {
+            // the run notices between chunks, and the lease is no longer ours to renew or release
+            lostLeases.add(tableName);
+            logger.error("Lost the lease of table {}, aborting its archival", tableName);
+        }
+    }
+
+    private static String ownerName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID();
+    }
+}
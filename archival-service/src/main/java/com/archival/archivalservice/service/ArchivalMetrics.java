@@ -0,0 +1,134 @@
+package com.archival.archivalservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters of the archival phases, all tagged with the table and, where it applies, the phase:
+ * <ul>
+ *     <li>{@code archival.phase.duration}: time spent per phase and call</li>
+ *     <li>{@code archival.records}: records handled per phase, whose rate is the records per second</li>
+ *     <li>{@code archival.bytes}: approximate bytes of the records written by the row based modes</li>
+ *     <li>{@code archival.batch.size}: records per chunk or batch</li>
+ *     <li>{@code archival.failures}: failed phases</li>
+ *     <li>{@code archival.backlog.records}: eligible records of the table not yet archived by the current run</li>
+ * </ul>
+ */
+@Component
+public class ArchivalMetrics {
+
+    public static final String METADATA = "metadata";
+    public static final String BACKLOG = "backlog";
+    public static final String SELECT = "select";
+    public static final String INSERT = "insert";
+    public static final String PURGE = "purge";
+    public static final String COPY = "copy";
+    public static final String MOVE = "move";
+    public static final String PARTITION = "partition";
+    public static final String RETENTION = "retention";
+    public static final String ARCHIVE = "archive";
+    public static final String TABLE = "table";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicLong> backlogs = new ConcurrentHashMap<>();
+
+    public void record(String phase, String tableName, long startNanos) {
+        Timer.builder("archival.phase.duration")
+                .tag("phase", phase)
+                .tag(TABLE, tableName)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void records(String phase, String tableName, long records) {
+        Counter.builder("archival.records")
+                .tag("phase", phase)
+                .tag(TABLE, tableName)
+                .register(meterRegistry)
+                .increment(records);
+    }
+
+    public void batch(String tableName, int size) {
+        DistributionSummary.builder("archival.batch.size")
+                .tag(TABLE, tableName)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * Counts the approximate payload of the written records, from the size of their column values.
+     */
+    public void bytes(String tableName, List<Object[]> records) {
+        long bytes = 0;
+        for (Object[] record : records) {
+            for (Object value : record) {
+                bytes += sizeOf(value);
+            }
+        }
+        Counter.builder("archival.bytes")
+                .baseUnit("bytes")
+                .tag(TABLE, tableName)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    public void failure(String phase, String tableName) {
+        Counter.builder("archival.failures")
+                .tag("phase", phase)
+                .tag(TABLE, tableName)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * The backlog of a table. It is set when a run has counted the eligible records, and lowered as records
+     * are archived.
+     */
+    public AtomicLong backlog(String tableName) {
+        return backlogs.computeIfAbsent(tableName, table -> {
+            AtomicLong backlog = new AtomicLong();
+            Gauge.builder("archival.backlog.records", backlog, AtomicLong::get)
+                    .tag(TABLE, table)
+                    .register(meterRegistry);
+            return backlog;
+        });
+    }
+
+    private static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (value instanceof Integer || value instanceof Float || value instanceof Date) {
+            return 4;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number || value instanceof Timestamp) {
+            return 8;
+        }
+        return value.toString().length();
+    }
+}
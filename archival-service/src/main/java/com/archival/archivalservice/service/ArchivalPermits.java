@@ -0,0 +1,63 @@
+package com.archival.archivalservice.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds how much archival work runs against each database at the same time. A table holds one permit of each
+ * database it works on, and every additional slice worker of a table holds one more of both, so the connections
+ * archival takes stay within the batch pools however the tables are configured.
+ */
+@Component
+public class ArchivalPermits {
+
+    @Value("${archival.parallel.app-db-limit:4}")
+    private int appDbLimit;
+
+    @Value("${archival.parallel.archival-db-limit:4}")
+    private int archivalDbLimit;
+
+    private Semaphore appDbPermits;
+
+    private Semaphore archivalDbPermits;
+
+    @PostConstruct
+    public void initDataSourcePermits() {
+        appDbPermits = new Semaphore(Math.max(1, appDbLimit), true);
+        archivalDbPermits = new Semaphore(Math.max(1, archivalDbLimit), true);
+    }
+
+    public Semaphore appDb() {
+        return appDbPermits;
+    }
+
+    public Semaphore archivalDb() {
+        return archivalDbPermits;
+    }
+
+    /**
+     * Takes a permit of both databases for up to {@code workers} additional workers without waiting, since the
+     * table already holds the permits it needs to make progress.
+     *
+     * @return the number of workers permits were taken for
+     */
+    int tryAcquireWorkers(int workers) {
+        int acquired = 0;
+        while (acquired < workers && appDbPermits.tryAcquire()) {
+            if (!archivalDbPermits.tryAcquire()) {
+                appDbPermits.release();
+                break;
+            }
+            acquired++;
+        }
+        return acquired;
+    }
+
+    void releaseWorkers(int workers) {
+        appDbPermits.release(workers);
+        archivalDbPermits.release(workers);
+    }
+}
@@ -0,0 +1,154 @@
+package com.archival.archivalservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams rows from a forward-only cursor on the source database into a bounded queue that is drained
+ * in batches by the calling thread, so reads on the source overlap with writes on the sink.
+ */
+@Component
+public class ArchivalPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalPipeline.class);
+
+    private static final Object[] END_OF_STREAM = new Object[0];
+
+    private static final long QUEUE_POLL_MILLIS = 500;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final ExecutorService readerExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "archival-reader-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${archival.pipeline.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${archival.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @FunctionalInterface
+    public interface BatchWriter {
+        int write(List<Object[]> batch);
+    }
+
+    public long transfer(DataSource source, String selectQuery, Object[] params, int columnCount, int batchSize,
+                         BatchWriter writer) throws SQLException {
+        BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Future<Long> reader = readerExecutor.submit(() -> read(source, selectQuery, params, columnCount, queue, cancelled));
+
+        long written = 0;
+        try {
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            while (true) {
+                Object[] record = queue.poll(QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    if (reader.isDone() && queue.isEmpty()) {
+                        // the reader failed before it could signal the end of the stream
+                        reader.get();
+                        break;
+                    }
+                    continue;
+                }
+                if (record == END_OF_STREAM) {
+                    break;
+                }
+                batch.add(record);
+                if (batch.size() >= batchSize) {
+                    written += writer.write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                written += writer.write(batch);
+            }
+            long read = reader.get();
+            logger.debug("Pipeline read {} and wrote {} records", read, written);
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while transferring records", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Failed to read records from source", e.getCause());
+        } finally {
+            cancelled.set(true);
+            reader.cancel(true);
+        }
+    }
+
+    private long read(DataSource source, String selectQuery, Object[] params, int columnCount,
+                      BlockingQueue<Object[]> queue, AtomicBoolean cancelled) throws SQLException, InterruptedException {
+        long count = 0;
+        try (Connection conn = source.getConnection()) {
+            // PostgreSQL only honours the fetch size for a cursor inside a transaction
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement stmt = conn.prepareStatement(selectQuery, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                new ArgumentPreparedStatementSetter(params).setValues(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Object[] values = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            values[i] = rs.getObject(i + 1);
+                        }
+                        if (!offer(queue, values, cancelled)) {
+                            return count;
+                        }
+                        count++;
+                    }
+                }
+                offer(queue, END_OF_STREAM, cancelled);
+                return count;
+            } finally {
+                conn.rollback();
+                conn.setReadOnly(false);
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private boolean offer(BlockingQueue<Object[]> queue, Object[] record, AtomicBoolean cancelled) throws InterruptedException {
+        while (!cancelled.get()) {
+            if (queue.offer(record, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readerExecutor.shutdownNow();
+    }
+}
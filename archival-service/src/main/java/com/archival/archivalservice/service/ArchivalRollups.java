@@ -0,0 +1,313 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalAggregate;
+import com.archival.archivalservice.dto.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Hourly rollups of the archived rows of every table in the {@code archive_rollups} table of the archival DB: the
+ * number of rows per hour of the archival column and, for the numeric {@code rollupColumns} of the configuration,
+ * their count, minimum, maximum and sum. They are added to as each chunk is archived, so aggregate queries read a
+ * few rollup rows instead of scanning the archive.
+ */
+@Component
+public class ArchivalRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalRollups.class);
+
+    private static final String UPSERT_QUERY = "INSERT INTO archive_rollups "
+            + "(table_name, bucket_start, column_name, record_count, min_value, max_value, sum_value) VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (table_name, bucket_start, column_name) DO UPDATE SET "
+            + "record_count = archive_rollups.record_count + EXCLUDED.record_count, "
+            + "min_value = LEAST(archive_rollups.min_value, EXCLUDED.min_value), "
+            + "max_value = GREATEST(archive_rollups.max_value, EXCLUDED.max_value), "
+            + "sum_value = COALESCE(archive_rollups.sum_value + EXCLUDED.sum_value, archive_rollups.sum_value, EXCLUDED.sum_value)";
+
+    private static final String AGGREGATE_QUERY = "SELECT date_trunc(?, r.bucket_start) AS bucket, SUM(r.record_count), "
+            + "MIN(c.min_value), MAX(c.max_value), SUM(c.sum_value) FROM archive_rollups r "
+            + "LEFT JOIN archive_rollups c ON c.table_name = r.table_name AND c.bucket_start = r.bucket_start AND c.column_name = ? "
+            + "WHERE r.table_name = ? AND r.column_name = ?";
+
+    private static final Set<String> BUCKET_UNITS = Set.of("hour", "day", "week", "month", "year");
+
+    private static final Set<Integer> NUMERIC_TYPES = Set.of(Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT,
+            Types.NUMERIC, Types.DECIMAL, Types.DOUBLE, Types.FLOAT, Types.REAL);
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalBatchDataSource;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Value("${archival.rollups.enabled:true}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The configured rollup columns that exist in the table and are numeric. Others are skipped rather than failing
+     * the archival of the table.
+     */
+    List<String> resolveColumns(TableSchemaCache.TableSchema schema, String rollupColumns) {
+        List<String> resolved = new ArrayList<>();
+        if (!enabled || rollupColumns == null || rollupColumns.isBlank()) {
+            return resolved;
+        }
+        for (String column : rollupColumns.split(Constants.COMMA_SEPARATOR)) {
+            int index = schema.columns.stream().map(String::toLowerCase).toList().indexOf(column.trim().toLowerCase());
+            if (index < 0 || !NUMERIC_TYPES.contains(schema.columnTypes[index])) {
+                logger.warn("Rollup column {} of table {} is not a numeric column, skipping it", column.trim(), schema.tableName);
+                continue;
+            }
+            resolved.add(schema.columns.get(index));
+        }
+        return resolved;
+    }
+
+    /**
+     * Adds records about to be archived to the rollups of their table.
+     */
+    void record(TableArchiver.TablePlan plan, List<Object[]> records) {
+        if (!enabled || records.isEmpty()) {
+            return;
+        }
+        upsert(plan.tableName, plan.rollupColumns, buckets(records, plan.columnIndex, plan.rollupIndexes));
+    }
+
+    /**
+     * Rolls records up into the hours of their value at {@code timeIndex}, with the statistics of the values at
+     * {@code rollupIndexes}. Records without a time are left out.
+     */
+    static Map<LocalDateTime, Bucket> buckets(List<Object[]> records, int timeIndex, int[] rollupIndexes) {
+        Map<LocalDateTime, Bucket> buckets = new TreeMap<>();
+        for (Object[] record : records) {
+            Object time = record[timeIndex];
+            if (time == null) {
+                continue;
+            }
+            Bucket bucket = buckets.computeIfAbsent(bucketStart(time), start -> new Bucket(rollupIndexes.length));
+            bucket.count++;
+            for (int i = 0; i < rollupIndexes.length; i++) {
+                Object value = record[rollupIndexes[i]];
+                if (value instanceof Number number) {
+                    bucket.add(i, new BigDecimal(number.toString()));
+                }
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * The number of columns of a row of {@link #aggregateQuery}.
+     */
+    static int aggregateWidth(List<String> rollupColumns) {
+        return 2 + rollupColumns.size() * 4;
+    }
+
+    /**
+     * A query that aggregates the rows of {@code source} into hourly buckets in the database, for rows that are moved
+     * without passing through the service. Its rows are read back by {@link #recordAggregates}. The caller appends
+     * the filter and {@code GROUP BY 1}.
+     */
+    String aggregateQuery(String source, String columnName, List<String> rollupColumns) {
+        StringBuilder query = new StringBuilder("SELECT date_trunc('hour', ").append(columnName).append("), COUNT(*)");
+        for (String column : rollupColumns) {
+            query.append(Constants.COMMA_SEPARATOR).append(" COUNT(").append(column).append("), MIN(").append(column)
+                    .append("), MAX(").append(column).append("), SUM(").append(column).append(")");
+        }
+        return query.append(" FROM ").append(source).toString();
+    }
+
+    void recordAggregates(String tableName, List<String> rollupColumns, List<Object[]> aggregates) {
+        if (!enabled || aggregates.isEmpty()) {
+            return;
+        }
+        upsert(tableName, rollupColumns, toBuckets(aggregates, rollupColumns));
+    }
+
+    /**
+     * Drops the buckets that retention has emptied. The bucket the threshold falls into is kept.
+     */
+    int deleteBefore(String tableName, LocalDateTime threshold) {
+        if (!enabled) {
+            return 0;
+        }
+        return new JdbcTemplate(archivalBatchDataSource).update(
+                "DELETE FROM archive_rollups WHERE table_name = ? AND bucket_start < ?", tableName, bucketStart(threshold));
+    }
+
+    /**
+     * Recomputes the rollups of a table from its {@code _archive} table in one transaction, for archives that hold
+     * rows from before the rollups were kept.
+     *
+     * @return the number of rows the rollups now cover
+     */
+    long rebuild(String tableName, String columnName, List<String> rollupColumns) {
+        String archiveTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(archivalBatchDataSource);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(archivalBatchDataSource));
+        Long covered = transaction.execute(status -> {
+            jdbcTemplate.update("DELETE FROM archive_rollups WHERE table_name = ?", tableName);
+            List<Object[]> aggregates = jdbcTemplate.query(aggregateQuery(archiveTableName, columnName, rollupColumns)
+                    + Constants.WHERE_CLAUSE + columnName + " IS NOT NULL GROUP BY 1", (rs, rowNum) -> {
+                Object[] aggregate = new Object[aggregateWidth(rollupColumns)];
+                for (int i = 0; i < aggregate.length; i++) {
+                    aggregate[i] = rs.getObject(i + 1);
+                }
+                return aggregate;
+            });
+            upsert(jdbcTemplate, tableName, rollupColumns, toBuckets(aggregates, rollupColumns));
+            return aggregates.stream().mapToLong(aggregate -> ((Number) aggregate[1]).longValue()).sum();
+        });
+        logger.info("Rebuilt rollups of table {} from {} archived records", tableName, covered);
+        return covered != null ? covered : 0;
+    }
+
+    /**
+     * Rolls the hourly buckets of a table up into {@code unit} buckets in {@code [from, to)}, with the statistics of
+     * {@code column} when it is one of the table's rollup columns.
+     */
+    public List<ArchivalAggregate> aggregate(String tableName, String unit, LocalDateTime from, LocalDateTime to, String column) {
+        String bucketUnit = unit != null ? unit.toLowerCase() : "day";
+        if (!BUCKET_UNITS.contains(bucketUnit)) {
+            throw new IllegalArgumentException(Constants.INVALID_BUCKET_MESSAGE + unit);
+        }
+        StringBuilder query = new StringBuilder(AGGREGATE_QUERY);
+        List<Object> params = new ArrayList<>(Arrays.asList(bucketUnit, column != null ? column.toLowerCase() : "", tableName,
+                Constants.ROLLUP_ALL_COLUMNS));
+        if (from != null) {
+            query.append(Constants.AND_CLAUSE).append("r.bucket_start >= ?");
+            params.add(bucketStart(from));
+        }
+        if (to != null) {
+            query.append(Constants.AND_CLAUSE).append("r.bucket_start < ?");
+            params.add(to);
+        }
+        query.append(" GROUP BY 1 ORDER BY 1");
+        return new JdbcTemplate(archivalDataSource).query(query.toString(), (rs, rowNum) -> {
+            ArchivalAggregate aggregate = new ArchivalAggregate();
+            aggregate.setBucketStart(rs.getTimestamp(1).toLocalDateTime());
+            aggregate.setCount(rs.getLong(2));
+            aggregate.setMin(rs.getBigDecimal(3));
+            aggregate.setMax(rs.getBigDecimal(4));
+            aggregate.setSum(rs.getBigDecimal(5));
+            return aggregate;
+        }, params.toArray());
+    }
+
+    /**
+     * Reads the rows of {@link #aggregateQuery} back into buckets.
+     */
+    static Map<LocalDateTime, Bucket> toBuckets(List<Object[]> aggregates, List<String> rollupColumns) {
+        Map<LocalDateTime, Bucket> buckets = new TreeMap<>();
+        for (Object[] aggregate : aggregates) {
+            if (aggregate[0] == null) {
+                continue;
+            }
+            Bucket bucket = new Bucket(rollupColumns.size());
+            bucket.count = ((Number) aggregate[1]).longValue();
+            for (int i = 0; i < rollupColumns.size(); i++) {
+                int offset = 2 + i * 4;
+                bucket.counts[i] = ((Number) aggregate[offset]).longValue();
+                bucket.min[i] = decimal(aggregate[offset + 1]);
+                bucket.max[i] = decimal(aggregate[offset + 2]);
+                bucket.sum[i] = decimal(aggregate[offset + 3]);
+            }
+            buckets.put(((Timestamp) aggregate[0]).toLocalDateTime(), bucket);
+        }
+        return buckets;
+    }
+
+    private void upsert(String tableName, List<String> rollupColumns, Map<LocalDateTime, Bucket> buckets) {
+        upsert(new JdbcTemplate(archivalBatchDataSource), tableName, rollupColumns, buckets);
+    }
+
+    /**
+     * Upserts in bucket order, so concurrent slices of a table lock the rollup rows they share in the same order.
+     */
+    private void upsert(JdbcTemplate jdbcTemplate, String tableName, List<String> rollupColumns, Map<LocalDateTime, Bucket> buckets) {
+        jdbcTemplate.batchUpdate(UPSERT_QUERY, upsertRows(tableName, rollupColumns, buckets), new int[]{Types.VARCHAR,
+                Types.TIMESTAMP, Types.VARCHAR, Types.BIGINT, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC});
+    }
+
+    /**
+     * The parameters of {@code UPSERT_QUERY} for each bucket: its row count under {@code *}, and the statistics of
+     * every rollup column that had a value in it.
+     */
+    static List<Object[]> upsertRows(String tableName, List<String> rollupColumns, Map<LocalDateTime, Bucket> buckets) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<LocalDateTime, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            rows.add(new Object[]{tableName, entry.getKey(), Constants.ROLLUP_ALL_COLUMNS, bucket.count, null, null, null});
+            for (int i = 0; i < rollupColumns.size(); i++) {
+                if (bucket.counts[i] > 0) {
+                    rows.add(new Object[]{tableName, entry.getKey(), rollupColumns.get(i).toLowerCase(), bucket.counts[i],
+                            bucket.min[i], bucket.max[i], bucket.sum[i]});
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static LocalDateTime bucketStart(Object time) {
+        LocalDateTime dateTime = time instanceof Timestamp timestamp ? timestamp.toLocalDateTime()
+                : time instanceof java.sql.Date date ? date.toLocalDate().atStartOfDay()
+                : (LocalDateTime) time;
+        return dateTime.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value == null ? null : value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    /**
+     * The rollup of one hour: its row count and, per rollup column, the count, minimum, maximum and sum of the
+     * non-null values.
+     */
+    static final class Bucket {
+        long count;
+        final long[] counts;
+        final BigDecimal[] min;
+        final BigDecimal[] max;
+        final BigDecimal[] sum;
+
+        Bucket(int columns) {
+            counts = new long[columns];
+            min = new BigDecimal[columns];
+            max = new BigDecimal[columns];
+            sum = new BigDecimal[columns];
+        }
+
+        void add(int column, BigDecimal value) {
+            counts[column]++;
+            min[column] = min[column] == null || value.compareTo(min[column]) < 0 ? value : min[column];
+            max[column] = max[column] == null || value.compareTo(max[column]) > 0 ? value : max[column];
+            sum[column] = sum[column] == null ? value : sum[column].add(value);
+        }
+    }
+}
@@ -4,31 +4,47 @@ import com.archival.archivalservice.appmodels.ArchivalConfiguration;
 import com.archival.archivalservice.appmodels.UserTableAssignment;
 import com.archival.archivalservice.apprepository.ArchivalCriteriaRepository;
 import com.archival.archivalservice.apprepository.UserTableAssignmentRepository;
+import com.archival.archivalservice.dto.ArchivalAggregate;
 import com.archival.archivalservice.dto.ArchivalConfigurationDto;
+import com.archival.archivalservice.dto.ArchivalJob;
 import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.ArchivalTableProgress;
+import com.archival.archivalservice.dto.ArchivedDataPage;
 import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.dto.TableArchivalResult;
 import com.archival.archivalservice.dto.UserTableAssignmentDto;
+import com.archival.archivalservice.enums.ArchivalJobStatus;
+import com.archival.archivalservice.enums.ExportFormat;
+import com.archival.archivalservice.exception.EntityDoesNotExistException;
 import com.archival.archivalservice.exception.PermissionDeniedException;
+import com.archival.archivalservice.exception.TableBusyException;
+import com.archival.archivalservice.utils.ArchivalTimeUtils;
+import com.archival.archivalservice.utils.ContinuationToken;
 import com.archival.archivalservice.utils.ObjectConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import javax.sql.DataSource;
-import java.sql.PreparedStatement;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -48,159 +64,265 @@ public class ArchivalService {
     private ObjectConverter objectConverter;
 
     @Autowired
-    @Qualifier(Constants.APP_DATA_SOURCE_QUALIFIER)
-    private DataSource appDataSource;
+    private TableArchiver tableArchiver;
 
     @Autowired
-    @Qualifier(Constants.ARCHIVAL_DATA_SOURCE_QUALIFIER)
-    private DataSource archivalDataSource;
+    private ArchivalCheckpointService archivalCheckpointService;
+
+    @Autowired
+    private TableSchemaCache tableSchemaCache;
+
+    @Autowired
+    private ArchivalSinks archivalSinks;
+
+    @Autowired
+    private ArchivalLeaseService archivalLeaseService;
+
+    @Autowired
+    private ArchivalMetrics archivalMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ArchivedDataCache archivedDataCache;
+
+    @Autowired
+    private ArchivalRollups archivalRollups;
+
+    @Autowired
+    private ArchiveIndexManager archiveIndexManager;
+
+    @Autowired
+    private ArchivalPermits archivalPermits;
+
+    @Value("${archival.parallel.tables:4}")
+    private int tableParallelism;
+
+    private final AtomicInteger tableThreadCounter = new AtomicInteger();
 
     public ArchivalConfigurationDto configureTableArchivalSetting(ArchivalConfigurationDto archivalConfigurationDto) throws PermissionDeniedException {
         if (!hasPermissionOnTable(archivalConfigurationDto.getTableName())) {
             throw new PermissionDeniedException(Constants.PERMISSION_DENIED_MESSAGE_PREFIX + archivalConfigurationDto.getTableName());
         }
+        // rejects an unknown sink before anything is saved
+        archivalSinks.get(archivalConfigurationDto.getArchivalSink());
         ArchivalConfiguration archivalConfiguration;
         Optional<ArchivalConfiguration> savedArchivalConfiguration = this.archivalCriteriaRepository.findByTableName(archivalConfigurationDto.getTableName());
         if (savedArchivalConfiguration.isPresent()) {
             archivalConfiguration = savedArchivalConfiguration.get();
+            if (!Objects.equals(archivalConfiguration.getArchivalColumnName(), archivalConfigurationDto.getArchivalColumnName())) {
+                // the watermark only holds for the column it was computed on
+                archivalConfiguration.setLastArchivedThreshold(null);
+            }
             archivalConfiguration.setTableName(archivalConfigurationDto.getTableName());
             archivalConfiguration.setArchiveAfter(archivalConfigurationDto.getArchiveAfter());
             archivalConfiguration.setDeleteAfter(archivalConfigurationDto.getDeleteAfter());
             archivalConfiguration.setArchivalTimeUnit(archivalConfigurationDto.getArchivalTimeUnit());
             archivalConfiguration.setDeleteAfterTimeUnit(archivalConfigurationDto.getDeleteAfterTimeUnit());
             archivalConfiguration.setArchivalColumnName(archivalConfigurationDto.getArchivalColumnName());
+            archivalConfiguration.setArchivalMode(archivalConfigurationDto.getArchivalMode());
+            archivalConfiguration.setChunkSize(archivalConfigurationDto.getChunkSize());
+            archivalConfiguration.setWorkerCount(archivalConfigurationDto.getWorkerCount());
+            archivalConfiguration.setSliceSize(archivalConfigurationDto.getSliceSize());
+            archivalConfiguration.setSliceTimeUnit(archivalConfigurationDto.getSliceTimeUnit());
+            archivalConfiguration.setDeleteBatchSize(archivalConfigurationDto.getDeleteBatchSize());
+            archivalConfiguration.setMinChunkSize(archivalConfigurationDto.getMinChunkSize());
+            archivalConfiguration.setMaxChunkSize(archivalConfigurationDto.getMaxChunkSize());
+            archivalConfiguration.setTargetChunkMillis(archivalConfigurationDto.getTargetChunkMillis());
+            archivalConfiguration.setMaxChunkDelayMillis(archivalConfigurationDto.getMaxChunkDelayMillis());
+            archivalConfiguration.setMaxActiveSessions(archivalConfigurationDto.getMaxActiveSessions());
+            archivalConfiguration.setArchivePartitionUnit(archivalConfigurationDto.getArchivePartitionUnit());
+            archivalConfiguration.setArchivalSink(archivalConfigurationDto.getArchivalSink());
+            archivalConfiguration.setRollupColumns(archivalConfigurationDto.getRollupColumns());
         } else {
             archivalConfiguration = (ArchivalConfiguration) this.objectConverter.convert(archivalConfigurationDto, ArchivalConfiguration.class);
+            archivalConfiguration.setLastArchivedThreshold(null);
         }
 
         archivalConfiguration = this.archivalCriteriaRepository.saveAndFlush(archivalConfiguration);
-        return (ArchivalConfigurationDto) this.objectConverter.convert(archivalConfiguration, ArchivalConfigurationDto.class);
+        // the sink may have changed, which changes where the table's pages are read from
+        archivedDataCache.invalidate(archivalConfiguration.getTableName());
+        this.tableSchemaCache.invalidate(archivalConfiguration.getTableName());
+        if (archivalSinks.get(archivalConfiguration.getArchivalSink()).isArchiveTable()) {
+            archiveIndexManager.provision(archivalConfiguration.getTableName(), archivalConfiguration.getArchivalColumnName());
+        }
+        return toDto(archivalConfiguration);
     }
 
     public List<ArchivalConfigurationDto> getArchivalConfiguration() {
         List<ArchivalConfiguration> configurations = this.archivalCriteriaRepository.findAll();
         return configurations.stream()
-                .map(s -> (ArchivalConfigurationDto) this.objectConverter.convert(s, ArchivalConfigurationDto.class))
+                .map(this::toDto)
                 .collect(Collectors.toList());
     }
 
+    private ArchivalConfigurationDto toDto(ArchivalConfiguration configuration) {
+        ArchivalConfigurationDto dto = (ArchivalConfigurationDto) this.objectConverter.convert(configuration, ArchivalConfigurationDto.class);
+        if (archivalSinks.get(configuration.getArchivalSink()).isArchiveTable()) {
+            dto.setArchiveIndexes(archiveIndexManager.status(configuration.getTableName(), configuration.getArchivalColumnName()));
+        }
+        return dto;
+    }
+
     @Scheduled(cron = "${scheduler.archive.cron:0 0 1 * * *}")
-    @Transactional
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public void archiveData() {
-        logger.info("Starting archival process...");
+        runArchival(new ArchivalJob(UUID.randomUUID().toString()));
+    }
+
+    /**
+     * Archives every configured table as one job and records the progress of each table in it. The job id is
+     * the run id of the checkpoints written by the job.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void runArchival(ArchivalJob job) {
+        logger.info("Starting archival process {}...", job.getJobId());
+        job.setStartedAt(LocalDateTime.now());
+        job.setStatus(ArchivalJobStatus.RUNNING);
         List<ArchivalConfiguration> criteriaList = archivalCriteriaRepository.findAll();
 
         if (criteriaList.isEmpty()) {
             logger.info("No archival criteria found. Skipping archival process.");
+            job.setStatus(ArchivalJobStatus.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
             return;
         }
 
-        for (ArchivalConfiguration criteria : criteriaList) {
-            String tableName = criteria.getTableName();
-            try {
-                long archivedRecords = archiveTableData(tableName, criteria.getArchiveAfter(),
-                        TimeUnit.valueOf(criteria.getArchivalTimeUnit().toString()), criteria.getArchivalColumnName());
-                logger.info("Archived {} records for table: {}", archivedRecords, tableName);
-                String deleteTableFromArchivalName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
-                long deletedRecords = deleteOldDataFromArchivalDB(deleteTableFromArchivalName, criteria.getDeleteAfter(),
-                        TimeUnit.valueOf(criteria.getDeleteAfterTimeUnit().toString()), criteria.getArchivalColumnName());
-                logger.info("Deleted {} old records from archival DB for table: {}", deletedRecords, tableName);
-            } catch (Exception e) {
-                logger.error("Failed to process archival for table {}: {}", tableName, e.getMessage());
+        String runId = job.getJobId();
+        LocalDateTime runStartedAt = archivalLeaseService.runStartedAt();
+        // instances firing on the same cron start on different tables instead of queueing for the same leases
+        criteriaList = new ArrayList<>(criteriaList);
+        Collections.shuffle(criteriaList);
+        int poolSize = Math.max(1, Math.min(tableParallelism, criteriaList.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "archival-table-" + tableThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<TableArchivalResult> results = new ArrayList<>();
+        try {
+            List<Future<TableArchivalResult>> futures = new ArrayList<>();
+            for (ArchivalConfiguration criteria : criteriaList) {
+                ArchivalTableProgress progress = job.table(criteria.getTableName());
+                futures.add(executor.submit(() -> archiveTable(criteria, runId, runStartedAt, progress)));
             }
-        }
-        logger.info("Archival process completed.");
-    }
-
-    private long archiveTableData(String tableName, long archiveAfter, TimeUnit timeUnit, String columnName) throws SQLException {
-        LocalDateTime archiveThreshold = calculateThreshold(LocalDateTime.now(), archiveAfter, timeUnit);
-        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
-        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
-
-        List<String> columns = getTableColumns(tableName, appDataSource);
-        String columnList = String.join(Constants.COMMA_SEPARATOR + " ", columns);
-        String placeholders = String.join(Constants.COMMA_SEPARATOR + " ", columns.stream().map(c -> "?").collect(Collectors.toList()));
-
-        String selectQuery = "SELECT " + columnList + " FROM " + tableName + Constants.WHERE_CLAUSE + columnName + " < ?";
-        List<Object[]> recordsToArchive = appJdbcTemplate.query(selectQuery,
-                (rs, rowNum) -> {
-                    Object[] values = new Object[columns.size()];
-                    for (int i = 0; i < columns.size(); i++) {
-                        values[i] = rs.getObject(i + 1);
-                    }
-                    return values;
-                },
-                archiveThreshold);
-
-        if (recordsToArchive.isEmpty()) {
-            logger.info("No records to archive for table: {}", tableName);
-            return 0;
-        }
-
-        String insertQuery = "INSERT INTO " + tableName + Constants.ARCHIVAL_TABLE_SUFFIX + " (" + columnList + ") VALUES (" + placeholders + ")";
-        try (PreparedStatement stmt = archivalJdbcTemplate.getDataSource().getConnection().prepareStatement(insertQuery)) {
-            for (Object[] record : recordsToArchive) {
-                for (int i = 0; i < record.length; i++) {
-                    stmt.setObject(i + 1, record[i]);
+            for (Future<TableArchivalResult> future : futures) {
+                TableArchivalResult result = future.get();
+                if (result != null) {
+                    results.add(result);
                 }
-                stmt.addBatch();
             }
-            int[] rowsInserted = stmt.executeBatch();
-            int totalInserted = Arrays.stream(rowsInserted).sum();
-            logger.info("Inserted {} records into archival DB for table: {}", totalInserted, tableName);
-
-            String deleteQuery = "DELETE FROM " + tableName + Constants.WHERE_CLAUSE + Constants.CREATED_AT_COLUMN + " < ?";
-            int rowsDeleted = appJdbcTemplate.update(deleteQuery, archiveThreshold);
-            logger.info("Deleted {} records from app DB for table: {}", rowsDeleted, tableName);
-
-            if (totalInserted != rowsDeleted) {
-                logger.warn("Mismatch between inserted ({}) and deleted ({}) records for table: {}", totalInserted, rowsDeleted, tableName);
-            }
-            return totalInserted;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.cancel();
+            logger.warn("Archival process interrupted");
+        } catch (ExecutionException e) {
+            job.setErrorMessage(e.getCause().getMessage());
+            logger.error("Unexpected archival failure: {}", e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
         }
-    }
 
-    private long deleteOldDataFromArchivalDB(String tableName, long deleteAfter, TimeUnit timeUnit, String columnName) throws SQLException {
-        LocalDateTime deleteThreshold = calculateThreshold(LocalDateTime.now(), deleteAfter, timeUnit);
-        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
-
-        String deleteQuery = "DELETE FROM " + tableName + Constants.WHERE_CLAUSE + columnName + " < ?";
-        int rowsDeleted = archivalJdbcTemplate.update(deleteQuery, deleteThreshold);
-        logger.info("Deleted {} old records from archival DB for table: {}", rowsDeleted, tableName);
-
-        return rowsDeleted;
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        for (TableArchivalResult result : results) {
+            logger.info("Table {}: {} archived, {} deleted in {} ms{}", result.getTableName(), result.getArchivedRecords(),
+                    result.getDeletedRecords(), result.getDurationMillis(), result.isSuccess() ? "" : " (failed: " + result.getErrorMessage() + ")");
+        }
+        archivalCheckpointService.deleteFinishedCheckpoints();
+        job.setStatus(job.isCancelled() ? ArchivalJobStatus.CANCELLED
+                : failed > 0 || job.getErrorMessage() != null ? ArchivalJobStatus.FAILED : ArchivalJobStatus.COMPLETED);
+        job.setFinishedAt(LocalDateTime.now());
+        logger.info("Archival process {} completed for {} tables, {} failed, {} skipped.", job.getJobId(), results.size(), failed,
+                criteriaList.size() - results.size());
     }
 
-    private LocalDateTime calculateThreshold(LocalDateTime baseTime, long duration, TimeUnit timeUnit) {
-        return switch (timeUnit) {
-            case DAYS -> baseTime.minusDays(duration);
-            case HOURS -> baseTime.minus(duration, ChronoUnit.HOURS);
-            case MINUTES -> baseTime.minus(duration, ChronoUnit.MINUTES);
-            default -> {
-                if (Constants.MONTHS_TIME_UNIT.equals(timeUnit.name())) {
-                    yield baseTime.minusDays(duration * 30);
-                } else if (Constants.YEARS_TIME_UNIT.equals(timeUnit.name())) {
-                    yield baseTime.minusDays(duration * 365);
-                }
-                throw new IllegalArgumentException(Constants.UNSUPPORTED_TIME_UNIT_MESSAGE + timeUnit);
+    /**
+     * Archives and applies retention to a single table. Failures are captured in the result so one table
+     * cannot abort the others.
+     *
+     * @return the result, or {@code null} if the job was cancelled first, or if another instance holds the table's
+     * lease or already archived it
+     */
+    private TableArchivalResult archiveTable(ArchivalConfiguration criteria, String runId, LocalDateTime runStartedAt,
+                                             ArchivalTableProgress progress) {
+        String tableName = criteria.getTableName();
+        if (progress.isCancelled()) {
+            progress.finish(ArchivalJobStatus.CANCELLED, null);
+            return null;
+        }
+        if (!archivalLeaseService.tryAcquire(tableName, runStartedAt)) {
+            progress.skip();
+            return null;
+        }
+        progress.start();
+        TableArchivalResult result = new TableArchivalResult(tableName);
+        long start = System.nanoTime();
+        String phase = ArchivalMetrics.ARCHIVE;
+        try {
+            long archivedRecords = withPermits(() -> tableArchiver.archiveTableData(criteria, runId, progress), archivalPermits.appDb(), archivalPermits.archivalDb());
+            result.setArchivedRecords(archivedRecords);
+            logger.info("Archived {} records for table: {}", archivedRecords, tableName);
+            ArchivalSink sink = archivalSinks.get(criteria.getArchivalSink());
+            phase = ArchivalMetrics.RETENTION;
+            long retentionStart = System.nanoTime();
+            long deletedRecords = withPermits(() -> deleteOldDataFromArchivalDB(sink, tableName, criteria.getDeleteAfter(),
+                    TimeUnit.valueOf(criteria.getDeleteAfterTimeUnit().toString()), criteria.getArchivalColumnName()), archivalPermits.archivalDb());
+            archivalMetrics.record(ArchivalMetrics.RETENTION, tableName, retentionStart);
+            archivalMetrics.records(ArchivalMetrics.RETENTION, tableName, deletedRecords);
+            result.setDeletedRecords(deletedRecords);
+            progress.deleted(deletedRecords);
+            logger.info("Deleted {} old records from archival DB for table: {}", deletedRecords, tableName);
+            result.setSuccess(true);
+            progress.finish(ArchivalJobStatus.COMPLETED, null);
+        } catch (Exception e) {
+            result.setErrorMessage(e.getMessage());
+            progress.finish(progress.isCancelled() ? ArchivalJobStatus.CANCELLED : ArchivalJobStatus.FAILED, e.getMessage());
+            if (!progress.isCancelled()) {
+                archivalMetrics.failure(phase, tableName);
             }
-        };
+            // the failure may come from a schema change, so the next run reloads the table's columns
+            tableSchemaCache.invalidate(tableName);
+            logger.error("Failed to process archival for table {}: {}", tableName, e.getMessage());
+        } finally {
+            // even a failed run may have committed some chunks
+            archivedDataCache.invalidate(tableName);
+            archivalLeaseService.release(tableName, result.isSuccess());
+        }
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        archivalMetrics.record(ArchivalMetrics.ARCHIVE, tableName, start);
+        return result;
     }
 
-    private List<String> getTableColumns(String tableName, DataSource dataSource) throws SQLException {
-        try (var conn = dataSource.getConnection();
-             var rs = conn.getMetaData().getColumns(null, null, tableName, null)) {
-            List<String> columns = new ArrayList<>();
-            while (rs.next()) {
-                columns.add(rs.getString(Constants.COLUMN_NAME_FIELD));
+    /**
+     * Runs the step while holding one permit of each given data source, bounding how many tables work
+     * against the same database at the same time.
+     */
+    private long withPermits(Callable<Long> step, Semaphore... permits) throws Exception {
+        int acquired = 0;
+        try {
+            for (Semaphore permit : permits) {
+                permit.acquire();
+                acquired++;
             }
-            if (columns.isEmpty()) {
-                throw new IllegalArgumentException(Constants.NO_COLUMNS_FOUND_MESSAGE + tableName);
+            return step.call();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                permits[i].release();
             }
-            return columns;
         }
     }
 
+    private long deleteOldDataFromArchivalDB(ArchivalSink sink, String tableName, long deleteAfter, TimeUnit timeUnit, String columnName)
+            throws SQLException, IOException {
+        LocalDateTime deleteThreshold = ArchivalTimeUtils.calculateThreshold(LocalDateTime.now(), deleteAfter, timeUnit);
+        long deleted = sink.deleteBefore(tableName + Constants.ARCHIVAL_TABLE_SUFFIX, columnName, deleteThreshold);
+        if (!sink.keepsExpiredRows()) {
+            archivalRollups.deleteBefore(tableName, deleteThreshold);
+        }
+        return deleted;
+    }
+
     public UserTableAssignmentDto assignTablesToUser(UserTableAssignmentDto dto) {
         Optional<UserTableAssignment> existingAssignment = this.userTableAssignmentRepository.findByUserName(dto.getUserName());
         UserTableAssignment userAssignment;
@@ -234,38 +356,97 @@ public class ArchivalService {
         return false;
     }
 
-    public List<Map<String, Object>> getArchivedData(String tableName, ArchivalQueryDTO queryParams) throws PermissionDeniedException {
+    /**
+     * Returns one page of archived rows. With a continuation token the page seeks past the last row of the previous
+     * page on ({@code created_at}, primary key), so every page costs the same however deep it is. Without one the
+     * {@code page} offset applies. A full page carries the token of the next one. Pages are served from
+     * {@link ArchivedDataCache} until the table is archived or aged out again.
+     */
+    public ArchivedDataPage getArchivedData(String tableName, ArchivalQueryDTO queryParams)
+            throws PermissionDeniedException, IOException, SQLException {
         if (!hasPermissionOnTable(tableName)) {
             throw new PermissionDeniedException(Constants.PERMISSION_DENIED_MESSAGE_PREFIX + tableName);
         }
-        String targetTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
-        StringBuilder query = new StringBuilder("SELECT * FROM " + targetTableName);
-        List<Object> params = new ArrayList<>();
-        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
-
-        if (queryParams.getStartDate() != null || queryParams.getEndDate() != null) {
-            query.append(Constants.WHERE_CLAUSE);
-            if (queryParams.getStartDate() != null) {
-                query.append(Constants.GREATER_THAN_EQUAL_CLAUSE);
-                params.add(queryParams.getStartDate());
-            }
-            if (queryParams.getStartDate() != null && queryParams.getEndDate() != null) {
-                query.append(Constants.AND_CLAUSE);
-            }
-            if (queryParams.getEndDate() != null) {
-                query.append(Constants.LESS_THAN_EQUAL_CLAUSE);
-                params.add(queryParams.getEndDate());
+        return archivedDataCache.get(tableName, queryParams, () -> readArchivedData(tableName, queryParams));
+    }
+
+    private ArchivedDataPage readArchivedData(String tableName, ArchivalQueryDTO queryParams) throws IOException, SQLException {
+        String sinkName = archivalCriteriaRepository.findByTableName(tableName).map(ArchivalConfiguration::getArchivalSink).orElse(null);
+        ArchivalSink sink = archivalSinks.get(sinkName);
+        String archiveTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        // validated against the archive itself, which may have outlived or diverged from the source table
+        ArchivedDataQuery query = ArchivedDataQuery.compile(sink.archiveSchema(archiveTableName), queryParams);
+        List<String> keyColumns = query.getKeyColumns();
+        List<String> orderColumns = ContinuationToken.orderColumns(keyColumns);
+        boolean descending = Constants.DESC_SORT.equalsIgnoreCase(queryParams.getSort());
+
+        ContinuationToken after = null;
+        if (queryParams.getContinuationToken() != null && !queryParams.getContinuationToken().isBlank()) {
+            after = ContinuationToken.decode(queryParams.getContinuationToken());
+            // the token names its columns, but only the table's own key columns ever make it into the query
+            if (keyColumns.isEmpty() || after.isDescending() != descending || !after.getColumns().equals(orderColumns)) {
+                throw new IllegalArgumentException(Constants.CONTINUATION_TOKEN_MISMATCH_MESSAGE + tableName);
             }
         }
+        List<Map<String, Object>> records = sink.read(archiveTableName, query, queryParams, after);
+
+        // without a primary key rows with the same created_at cannot be told apart, so only offset paging is offered
+        String nextToken = null;
+        if (!keyColumns.isEmpty() && !records.isEmpty() && records.size() >= queryParams.getSize()) {
+            nextToken = ContinuationToken.after(records.get(records.size() - 1), descending, orderColumns).encode();
+        }
+        return new ArchivedDataPage(records, nextToken);
+    }
 
-        String sortOrder = Constants.DESC_SORT.equalsIgnoreCase(queryParams.getSort()) ? Constants.DESC_SORT_UPPER : Constants.ASC_SORT;
-        query.append(Constants.ORDER_BY_CLAUSE).append(sortOrder);
+    /**
+     * Checks access and resolves the table up front, so a refused export fails before any of the response is sent.
+     * The rows are only read once the returned export is written out.
+     */
+    public ArchivedDataExport exportArchivedData(String tableName, ArchivalQueryDTO queryParams, ExportFormat format)
+            throws PermissionDeniedException, SQLException, IOException {
+        if (!hasPermissionOnTable(tableName)) {
+            throw new PermissionDeniedException(Constants.PERMISSION_DENIED_MESSAGE_PREFIX + tableName);
+        }
+        String sinkName = archivalCriteriaRepository.findByTableName(tableName).map(ArchivalConfiguration::getArchivalSink).orElse(null);
+        ArchivalSink sink = archivalSinks.get(sinkName);
+        String archiveTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        return new ArchivedDataExport(sink, archiveTableName, ArchivedDataQuery.compile(sink.archiveSchema(archiveTableName), queryParams),
+                queryParams, format, objectMapper);
+    }
 
-        int offset = queryParams.getPage() * queryParams.getSize();
-        query.append(Constants.LIMIT_OFFSET_CLAUSE);
-        params.add(queryParams.getSize());
-        params.add(offset);
+    /**
+     * Returns the rollups of the table's archived rows in buckets of {@code bucket}, read from the hourly rollups
+     * kept during archival instead of the archive itself.
+     */
+    public List<ArchivalAggregate> getArchivedAggregates(String tableName, String bucket, LocalDateTime from, LocalDateTime to,
+                                                         String column) throws PermissionDeniedException {
+        if (!hasPermissionOnTable(tableName)) {
+            throw new PermissionDeniedException(Constants.PERMISSION_DENIED_MESSAGE_PREFIX + tableName);
+        }
+        return archivalRollups.aggregate(tableName, bucket, from, to, column);
+    }
 
-        return archivalJdbcTemplate.queryForList(query.toString(), params.toArray());
+    /**
+     * Recomputes the rollups of a table from its archive table, for rows archived before rollups were kept or before
+     * a rollup column was added. Holds the table's lease, so no run archives into the table meanwhile.
+     *
+     * @return the number of archived rows the rollups cover
+     */
+    public long rebuildRollups(String tableName) throws EntityDoesNotExistException, TableBusyException, SQLException {
+        ArchivalConfiguration criteria = archivalCriteriaRepository.findByTableName(tableName)
+                .orElseThrow(() -> new EntityDoesNotExistException("No archival configuration for table " + tableName));
+        if (!archivalSinks.get(criteria.getArchivalSink()).isArchiveTable()) {
+            throw new IllegalArgumentException("Rollups can only be rebuilt from an archive table, table " + tableName
+                    + " is archived into the " + criteria.getArchivalSink() + " sink");
+        }
+        if (!archivalLeaseService.tryAcquire(tableName, archivalLeaseService.runStartedAt())) {
+            throw new TableBusyException(Constants.TABLE_BUSY_MESSAGE + tableName);
+        }
+        try {
+            List<String> rollupColumns = archivalRollups.resolveColumns(tableSchemaCache.get(tableName), criteria.getRollupColumns());
+            return archivalRollups.rebuild(tableName, criteria.getArchivalColumnName(), rollupColumns);
+        } finally {
+            archivalLeaseService.release(tableName, false);
+        }
     }
-}
\ No newline at end of file
+}
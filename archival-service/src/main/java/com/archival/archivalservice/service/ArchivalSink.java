@@ -0,0 +1,100 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.utils.ContinuationToken;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A target that archived rows are written to, aged out of and read back from. Every implementation is a bean
+ * registered under {@link #getName()}, and a table selects one with the {@code archivalSink} setting of its
+ * configuration.
+ */
+interface ArchivalSink {
+
+    String getName();
+
+    /**
+     * Whether the sink is the {@code _archive} table of the archival DB, so rows may also be moved into it with
+     * COPY, on the server or as whole partitions.
+     */
+    default boolean isArchiveTable() {
+        return false;
+    }
+
+    /**
+     * Durably stores the records, which hold the columns of {@code schema} in order. The rows are purged from the
+     * app DB as soon as this returns.
+     *
+     * @return the number of stored records
+     */
+    int write(TableSchemaCache.TableSchema schema, String columnName, List<Object[]> records);
+
+    /**
+     * The columns, JDBC types and primary key of the archived rows of a table, taken from the archive itself, so
+     * archived data can be queried without the app DB.
+     *
+     * @throws IllegalArgumentException when nothing has been archived for the table
+     */
+    TableSchemaCache.TableSchema archiveSchema(String archiveTableName) throws SQLException, IOException;
+
+    /**
+     * Removes the archived rows of the table whose {@code columnName} is older than {@code threshold}.
+     *
+     * @return the number of removed rows
+     */
+    long deleteBefore(String archiveTableName, String columnName, LocalDateTime threshold) throws SQLException, IOException;
+
+    /**
+     * Whether rows removed by {@link #deleteBefore} can still be read back, so their rollups are kept.
+     */
+    default boolean keepsExpiredRows() {
+        return false;
+    }
+
+    /**
+     * Returns one page of archived rows filtered on {@code created_at} and the predicates of {@code query}, holding
+     * its projected columns, and ordered on {@code created_at} and then the key columns. The page starts right after
+     * {@code after} when a token is given, and at the page offset of {@code queryParams} otherwise.
+     */
+    List<Map<String, Object>> read(String archiveTableName, ArchivedDataQuery query, ArchivalQueryDTO queryParams,
+                                   ContinuationToken after) throws IOException;
+
+    /**
+     * Writes every archived row in the range of {@code queryParams} that matches {@code query}, in its sort order. By default the rows are
+     * read a page at a time, continuing after the last row of each page, so only one page is held in memory.
+     *
+     * @return the number of exported rows
+     */
+    default long export(String archiveTableName, ArchivedDataQuery query, ArchivalQueryDTO queryParams, ArchivedRowWriter writer)
+            throws IOException, SQLException {
+        ArchivalQueryDTO page = new ArchivalQueryDTO();
+        page.setStartDate(queryParams.getStartDate());
+        page.setEndDate(queryParams.getEndDate());
+        page.setSort(queryParams.getSort());
+        page.setSize(Constants.EXPORT_PAGE_SIZE);
+        boolean descending = Constants.DESC_SORT.equalsIgnoreCase(queryParams.getSort());
+        ContinuationToken after = null;
+        long exported = 0;
+        while (true) {
+            List<Map<String, Object>> rows = read(archiveTableName, query, page, after);
+            for (Map<String, Object> row : rows) {
+                writer.write(row);
+            }
+            exported += rows.size();
+            if (rows.size() < page.getSize()) {
+                return exported;
+            }
+            if (query.getKeyColumns().isEmpty()) {
+                page.setPage(page.getPage() + 1);
+            } else {
+                after = ContinuationToken.after(rows.get(rows.size() - 1), descending, ContinuationToken.orderColumns(query.getKeyColumns()));
+            }
+        }
+    }
+}
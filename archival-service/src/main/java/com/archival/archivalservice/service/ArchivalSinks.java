@@ -0,0 +1,36 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.Constants;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up the {@link ArchivalSink} beans by name. Tables without a configured sink use the JDBC sink.
+ */
+@Component
+public class ArchivalSinks {
+
+    @Autowired
+    private List<ArchivalSink> sinks;
+
+    private Map<String, ArchivalSink> sinksByName;
+
+    @PostConstruct
+    public void indexSinks() {
+        sinksByName = sinks.stream().collect(Collectors.toMap(ArchivalSink::getName, Function.identity()));
+    }
+
+    ArchivalSink get(String name) {
+        ArchivalSink sink = sinksByName.get(name == null || name.isBlank() ? Constants.JDBC_SINK : name);
+        if (sink == null) {
+            throw new IllegalArgumentException(Constants.UNKNOWN_SINK_MESSAGE + name);
+        }
+        return sink;
+    }
+}
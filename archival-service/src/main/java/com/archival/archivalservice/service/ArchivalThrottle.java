@@ -0,0 +1,149 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.appmodels.ArchivalConfiguration;
+import com.archival.archivalservice.dto.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces chunked archival against the app DB. Each range gets a {@link ChunkThrottle} that sizes the next chunk
+ * from the throughput of the previous ones, so a chunk takes about {@code targetChunkMillis}, and pauses between
+ * chunks while the app DB has more active sessions than the table allows.
+ */
+@Component
+public class ArchivalThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalThrottle.class);
+
+    private static final String ACTIVE_SESSIONS_QUERY =
+            "SELECT count(*) FROM pg_stat_activity WHERE state = 'active' AND datname = current_database()";
+
+    private static final long MIN_DELAY_MILLIS = 100;
+
+    @Autowired
+    @Qualifier(Constants.APP_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource appDataSource;
+
+    @Value("${archival.throttle.probe-interval-millis:5000}")
+    private long probeIntervalMillis;
+
+    @Value("${archival.throttle.max-delay-millis:5000}")
+    private int defaultMaxDelayMillis;
+
+    private volatile long lastProbeNanos;
+
+    private volatile int lastActiveSessions = -1;
+
+    private volatile boolean probeSupported = true;
+
+    public ChunkThrottle start(ArchivalConfiguration criteria, int chunkSize) {
+        int minChunkSize = positiveOr(criteria.getMinChunkSize(), Math.max(1, chunkSize / 10));
+        int maxChunkSize = Math.max(minChunkSize, positiveOr(criteria.getMaxChunkSize(), chunkSize * 10));
+        return new ChunkThrottle(criteria.getTableName(), chunkSize, minChunkSize, maxChunkSize,
+                positiveOr(criteria.getTargetChunkMillis(), 0), positiveOr(criteria.getMaxChunkDelayMillis(), defaultMaxDelayMillis),
+                positiveOr(criteria.getMaxActiveSessions(), 0));
+    }
+
+    /**
+     * Number of active sessions on the app DB, sampled at most once per probe interval and shared by every
+     * range. Returns {@code -1} when the database does not expose {@code pg_stat_activity}.
+     */
+    int activeSessions() {
+        if (!probeSupported) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        if (now - lastProbeNanos >= TimeUnit.MILLISECONDS.toNanos(probeIntervalMillis)) {
+            lastProbeNanos = now;
+            try {
+                Integer sessions = new JdbcTemplate(appDataSource).queryForObject(ACTIVE_SESSIONS_QUERY, Integer.class);
+                lastActiveSessions = sessions != null ? sessions : -1;
+            } catch (RuntimeException e) {
+                logger.warn("Disabling the app DB load probe: {}", e.getMessage());
+                probeSupported = false;
+                return -1;
+            }
+        }
+        return lastActiveSessions;
+    }
+
+    private static int positiveOr(Integer value, int fallback) {
+        return value != null && value > 0 ? value : fallback;
+    }
+
+    /**
+     * The pacing state of one archival range. Without a target chunk duration the chunk size stays fixed, and
+     * without a session limit no pause is ever taken.
+     */
+    final class ChunkThrottle {
+        private final String tableName;
+        private final int minChunkSize;
+        private final int maxChunkSize;
+        private final long targetChunkMillis;
+        private final long maxDelayMillis;
+        private final int maxActiveSessions;
+        private int chunkSize;
+        private double rowsPerSecond;
+        private long delayMillis;
+
+        ChunkThrottle(String tableName, int chunkSize, int minChunkSize, int maxChunkSize, long targetChunkMillis,
+                      long maxDelayMillis, int maxActiveSessions) {
+            this.tableName = tableName;
+            this.minChunkSize = minChunkSize;
+            this.maxChunkSize = maxChunkSize;
+            this.targetChunkMillis = targetChunkMillis;
+            this.maxDelayMillis = maxDelayMillis;
+            this.maxActiveSessions = maxActiveSessions;
+            this.chunkSize = targetChunkMillis > 0 ? Math.min(maxChunkSize, Math.max(minChunkSize, chunkSize)) : chunkSize;
+        }
+
+        int chunkSize() {
+            return chunkSize;
+        }
+
+        /**
+         * Feeds the outcome of a finished chunk back into the controller and waits before the next one if the
+         * app DB is busy.
+         */
+        void chunkDone(int rows, long elapsedNanos) {
+            if (targetChunkMillis > 0 && rows > 0) {
+                double observed = rows * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos);
+                rowsPerSecond = rowsPerSecond == 0 ? observed : 0.5 * rowsPerSecond + 0.5 * observed;
+                long wanted = Math.round(rowsPerSecond * targetChunkMillis / 1000);
+                // grow at most twofold per chunk, shrink immediately when a chunk ran too long
+                int next = (int) Math.min(wanted, 2L * chunkSize);
+                chunkSize = Math.min(maxChunkSize, Math.max(minChunkSize, next));
+            }
+            if (maxActiveSessions > 0) {
+                int sessions = activeSessions();
+                if (sessions > maxActiveSessions) {
+                    delayMillis = Math.min(maxDelayMillis, Math.max(MIN_DELAY_MILLIS, delayMillis * 2));
+                } else {
+                    delayMillis = delayMillis / 2 < MIN_DELAY_MILLIS ? 0 : delayMillis / 2;
+                }
+                if (delayMillis > 0) {
+                    logger.debug("App DB has {} active sessions, pausing {} ms before the next chunk of table {}",
+                            sessions, delayMillis, tableName);
+                    pause(delayMillis);
+                }
+            }
+            logger.trace("Next chunk of table {} has {} records ({} records/s)", tableName, chunkSize, Math.round(rowsPerSecond));
+        }
+
+        private void pause(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchiveIndexStatus;
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.enums.ArchiveIndexState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes sure every {@code _archive} table has the indexes its queries rely on: a B-tree on {@code created_at} and
+ * the key columns, which serves the range filter and the keyset order of archived-data pages, and a BRIN index on
+ * the archival column for the retention delete when that is another column. Archived rows are appended in roughly
+ * archival column order, so the BRIN index stays a few pages however large the archive grows.
+ * <p>
+ * Missing indexes are built in the background with {@code CREATE INDEX CONCURRENTLY}, so archival keeps writing
+ * into the table meanwhile. On a partitioned archive the index is created on the parent only and then built and
+ * attached one partition at a time.
+ */
+@Component
+public class ArchiveIndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveIndexManager.class);
+
+    private static final String BTREE = "btree";
+    private static final String BRIN = "brin";
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Autowired
+    private TableSchemaCache tableSchemaCache;
+
+    @Value("${archival.archive-indexes.auto-create:true}")
+    private boolean autoCreate;
+
+    private final Set<String> building = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+    private ExecutorService builder;
+
+    @PostConstruct
+    public void startBuilder() {
+        // one index build at a time, each one already reads the whole table
+        builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archive-index-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stopBuilder() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Queues the build of the indexes of the table's archive that are missing or were left invalid by a failed
+     * build. Does nothing when {@code archival.archive-indexes.auto-create} is off.
+     */
+    public void provision(String tableName, String columnName) {
+        if (!autoCreate) {
+            return;
+        }
+        builder.submit(() -> {
+            try {
+                for (IndexSpec spec : required(tableName, columnName)) {
+                    ensure(spec);
+                }
+            } catch (SQLException | DataAccessException e) {
+                logger.warn("Unable to provision the indexes of the archive of table {}: {}", tableName, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * The state of each index the table's archive needs, read from the catalog of the archival DB.
+     */
+    public List<ArchiveIndexStatus> status(String tableName, String columnName) {
+        List<ArchiveIndexStatus> statuses = new ArrayList<>();
+        try {
+            List<IndexSpec> specs = required(tableName, columnName);
+            List<CatalogIndex> existing = indexes(specs.get(0).archiveTableName);
+            for (IndexSpec spec : specs) {
+                ArchiveIndexStatus status = new ArchiveIndexStatus();
+                status.setIndexName(spec.name);
+                status.setMethod(spec.method);
+                status.setColumns(String.join(Constants.COMMA_SEPARATOR + " ", spec.columns));
+                CatalogIndex covering = existing.stream().filter(index -> index.valid && spec.coveredBy(index)).findFirst().orElse(null);
+                if (covering != null) {
+                    status.setIndexName(covering.name);
+                    status.setMethod(covering.method);
+                    status.setState(ArchiveIndexState.PRESENT);
+                } else if (building.contains(spec.name)) {
+                    status.setState(ArchiveIndexState.BUILDING);
+                } else if (failures.containsKey(spec.name)) {
+                    status.setState(ArchiveIndexState.FAILED);
+                    status.setMessage(failures.get(spec.name));
+                } else if (existing.stream().anyMatch(index -> index.name.equals(spec.name))) {
+                    status.setState(ArchiveIndexState.INVALID);
+                } else {
+                    status.setState(ArchiveIndexState.MISSING);
+                }
+                statuses.add(status);
+            }
+        } catch (SQLException | DataAccessException e) {
+            logger.debug("Unable to read the indexes of the archive of table {}: {}", tableName, e.getMessage());
+        }
+        return statuses;
+    }
+
+    private List<IndexSpec> required(String tableName, String columnName) throws SQLException {
+        String archiveTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        List<IndexSpec> specs = new ArrayList<>();
+        List<String> keysetColumns = new ArrayList<>();
+        keysetColumns.add(Constants.CREATED_AT_COLUMN);
+        tableSchemaCache.get(tableName).keyColumns.stream()
+                .filter(key -> !key.equalsIgnoreCase(Constants.CREATED_AT_COLUMN))
+                .forEach(keysetColumns::add);
+        specs.add(new IndexSpec(archiveTableName, BTREE, keysetColumns));
+        if (columnName != null && !columnName.equalsIgnoreCase(Constants.CREATED_AT_COLUMN)) {
+            specs.add(new IndexSpec(archiveTableName, BRIN, List.of(columnName)));
+        }
+        return specs;
+    }
+
+    private void ensure(IndexSpec spec) {
+        List<CatalogIndex> existing = indexes(spec.archiveTableName);
+        if (existing.isEmpty() && Boolean.TRUE.equals(new JdbcTemplate(archivalDataSource).queryForObject(
+                "SELECT to_regclass(?) IS NULL", Boolean.class, spec.archiveTableName))) {
+            logger.warn("Archive table {} does not exist, not creating index {}", spec.archiveTableName, spec.name);
+            return;
+        }
+        if (existing.stream().anyMatch(index -> index.valid && spec.coveredBy(index))) {
+            return;
+        }
+        building.add(spec.name);
+        failures.remove(spec.name);
+        long start = System.nanoTime();
+        try {
+            JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
+            String partitionKey = archivalJdbcTemplate.queryForObject(Constants.PARTITION_KEY_QUERY, String.class, spec.archiveTableName);
+            if (partitionKey == null) {
+                // a concurrent build that failed leaves an invalid index behind, which IF NOT EXISTS would keep
+                archivalJdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + spec.name);
+                archivalJdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + spec.name + " ON " + spec.archiveTableName + spec.using());
+            } else {
+                // stays invalid until every partition has its index attached, new partitions inherit it
+                archivalJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + spec.name + " ON ONLY " + spec.archiveTableName + spec.using());
+                List<String> partitions = archivalJdbcTemplate.query(Constants.LEAF_PARTITIONS_QUERY, (rs, rowNum) -> rs.getString(1),
+                        spec.archiveTableName);
+                for (String partition : partitions) {
+                    int schemaEnd = partition.lastIndexOf('.');
+                    String partitionIndex = partition.substring(0, schemaEnd + 1)
+                            + partition.substring(schemaEnd + 1).replace("\"", "") + spec.suffix();
+                    List<Boolean> valid = archivalJdbcTemplate.queryForList(Constants.INDEX_VALID_QUERY, Boolean.class, partitionIndex);
+                    boolean present = !valid.isEmpty() && valid.get(0);
+                    if (!valid.isEmpty() && !present) {
+                        // left invalid by a failed concurrent build, which IF NOT EXISTS would keep as on a plain table
+                        archivalJdbcTemplate.execute("DROP INDEX CONCURRENTLY " + partitionIndex);
+                    }
+                    if (!present) {
+                        archivalJdbcTemplate.execute("CREATE INDEX CONCURRENTLY " + partitionIndex.substring(schemaEnd + 1)
+                                + " ON " + partition + spec.using());
+                    }
+                    // a failed attach fails the build, since the parent index stays invalid until every partition is attached
+                    if (!Boolean.TRUE.equals(archivalJdbcTemplate.queryForObject(Constants.INDEX_ATTACHED_QUERY, Boolean.class,
+                            partitionIndex, spec.name))) {
+                        archivalJdbcTemplate.execute("ALTER INDEX " + spec.name + " ATTACH PARTITION " + partitionIndex);
+                    }
+                }
+            }
+            logger.info("Created {} index {} on {} ({}) in {} ms", spec.method, spec.name, spec.archiveTableName,
+                    String.join(Constants.COMMA_SEPARATOR + " ", spec.columns), (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessException e) {
+            failures.put(spec.name, e.getMostSpecificCause().getMessage());
+            logger.error("Failed to create index {} on {}: {}", spec.name, spec.archiveTableName, e.getMostSpecificCause().getMessage());
+        } finally {
+            building.remove(spec.name);
+        }
+    }
+
+    private List<CatalogIndex> indexes(String archiveTableName) {
+        return new JdbcTemplate(archivalDataSource).query(Constants.TABLE_INDEXES_QUERY, (rs, rowNum) -> {
+            Array columns = rs.getArray(4);
+            return new CatalogIndex(rs.getString(1), rs.getString(2), rs.getBoolean(3), Arrays.asList((String[]) columns.getArray()));
+        }, archiveTableName);
+    }
+
+    /**
+     * An index an archive table needs.
+     */
+    private static final class IndexSpec {
+        final String archiveTableName;
+        final String name;
+        final String method;
+        final List<String> columns;
+
+        IndexSpec(String archiveTableName, String method, List<String> columns) {
+            this.archiveTableName = archiveTableName;
+            this.method = method;
+            this.columns = columns;
+            this.name = archiveTableName + suffix();
+        }
+
+        String using() {
+            return " USING " + method + " (" + String.join(Constants.COMMA_SEPARATOR + " ", columns) + ")";
+        }
+
+        String suffix() {
+            return method.equals(BRIN) ? "_" + columns.get(0).toLowerCase() + "_brin" : "_keyset_idx";
+        }
+
+        /**
+         * A B-tree whose leading columns are ours serves the same queries. Any index leading with the column serves
+         * the range delete a BRIN index is meant for.
+         */
+        boolean coveredBy(CatalogIndex index) {
+            if (method.equals(BRIN)) {
+                return !index.columns.isEmpty() && index.columns.get(0).equalsIgnoreCase(columns.get(0));
+            }
+            if (!index.method.equals(BTREE) || index.columns.size() < columns.size()) {
+                return false;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (!index.columns.get(i).equalsIgnoreCase(columns.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class CatalogIndex {
+        final String name;
+        final String method;
+        final boolean valid;
+        final List<String> columns;
+
+        CatalogIndex(String name, String method, boolean valid, List<String> columns) {
+            this.name = name;
+            this.method = method;
+            this.valid = valid;
+            this.columns = columns;
+        }
+    }
+}
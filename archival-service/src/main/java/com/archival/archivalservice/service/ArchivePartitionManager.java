@@ -0,0 +1,174 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.enums.ArchivalTimeUnit;
+import com.archival.archivalservice.utils.PartitionBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains {@code _archive} tables that are range-partitioned on the archival column in the archival DB.
+ * Partitions are created ahead of the rows that will be archived into them, and retention drops whole expired
+ * partitions instead of deleting their rows.
+ */
+@Component
+public class ArchivePartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivePartitionManager.class);
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String ROW_ESTIMATE_QUERY = "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = to_regclass(?)";
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Value("${archival.archive-partitions.premake:3}")
+    private int premakePartitions;
+
+    public boolean isPartitioned(String archiveTableName, String columnName) {
+        try {
+            String partitionKey = new JdbcTemplate(archivalDataSource).queryForObject(Constants.PARTITION_KEY_QUERY, String.class,
+                    archiveTableName);
+            return partitionKey != null && partitionKey.equalsIgnoreCase(Constants.RANGE_PARTITION_KEY_PREFIX + columnName + ")");
+        } catch (DataAccessException e) {
+            // not PostgreSQL, so there is nothing to manage
+            return false;
+        }
+    }
+
+    /**
+     * Creates the missing partitions of one {@code unit} each that cover {@code [from, to)}, plus the configured
+     * number of partitions beyond {@code to}. Intervals that overlap an existing partition are left alone. A default
+     * partition does not stop partitions from being created, but one whose range it already holds rows of cannot be.
+     *
+     * @return the number of created partitions
+     */
+    public int ensurePartitions(String archiveTableName, ArchivalTimeUnit unit, LocalDateTime from, LocalDateTime to) {
+        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
+        List<LocalDateTime[]> existing = new ArrayList<>();
+        List<String> defaultPartitions = new ArrayList<>();
+        archivalJdbcTemplate.query(Constants.LEAF_PARTITIONS_QUERY, rs -> {
+            String bound = rs.getString(2);
+            if (PartitionBounds.isDefault(bound)) {
+                defaultPartitions.add(rs.getString(1));
+            } else {
+                existing.add(new LocalDateTime[]{PartitionBounds.lower(bound), PartitionBounds.upper(bound)});
+            }
+        }, archiveTableName);
+
+        LocalDateTime end = to;
+        for (int i = 0; i < premakePartitions; i++) {
+            end = next(end, unit);
+        }
+        int created = 0;
+        for (LocalDateTime lower = truncate(from, unit); lower.isBefore(end); lower = next(lower, unit)) {
+            LocalDateTime upper = next(lower, unit);
+            if (overlapsAny(existing, lower, upper)) {
+                continue;
+            }
+            String partitionName = archiveTableName + "_p" + lower.format(DateTimeFormatter.ofPattern(suffixPattern(unit)));
+            try {
+                archivalJdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName + " PARTITION OF " + archiveTableName
+                        + " FOR VALUES FROM ('" + lower.format(BOUND_FORMAT) + "') TO ('" + upper.format(BOUND_FORMAT) + "')");
+                existing.add(new LocalDateTime[]{lower, upper});
+                created++;
+            } catch (DataAccessException e) {
+                if (defaultPartitions.isEmpty()) {
+                    logger.warn("Failed to create archive partition {}: {}", partitionName, e.getMessage());
+                } else {
+                    // PostgreSQL refuses a partition for rows the default partition already holds, they have to be
+                    // moved out of it first
+                    logger.warn("Failed to create archive partition {}, default partition {} may hold rows of its range: {}",
+                            partitionName, defaultPartitions.get(0), e.getMessage());
+                }
+            }
+        }
+        if (created > 0) {
+            logger.info("Created {} partitions of {} up to {}", created, archiveTableName, end);
+        }
+        return created;
+    }
+
+    /**
+     * Drops every partition whose upper bound is not above {@code threshold}. Rows of the partition that
+     * straddles the threshold are left to the regular retention delete.
+     *
+     * @return the estimated number of rows in the dropped partitions, taken from the planner statistics
+     */
+    public long dropExpiredPartitions(String archiveTableName, LocalDateTime threshold) {
+        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
+        List<String> expired = new ArrayList<>();
+        archivalJdbcTemplate.query(Constants.LEAF_PARTITIONS_QUERY, rs -> {
+            LocalDateTime upper = PartitionBounds.upper(rs.getString(2));
+            if (upper != null && !upper.isAfter(threshold)) {
+                expired.add(rs.getString(1));
+            }
+        }, archiveTableName);
+
+        long droppedRows = 0;
+        for (String partition : expired) {
+            Long rows = archivalJdbcTemplate.queryForObject(ROW_ESTIMATE_QUERY, Long.class, partition);
+            archivalJdbcTemplate.execute("DROP TABLE " + partition);
+            droppedRows += rows != null ? rows : 0;
+            logger.info("Dropped expired archive partition {} (about {} records)", partition, rows);
+        }
+        return droppedRows;
+    }
+
+    static boolean overlapsAny(List<LocalDateTime[]> partitions, LocalDateTime lower, LocalDateTime upper) {
+        for (LocalDateTime[] bounds : partitions) {
+            if (bounds[0] == null && bounds[1] == null) {
+                // not a range of timestamps, which says nothing about where the rows go
+                continue;
+            }
+            boolean startsBeforeUpper = bounds[0] == null || bounds[0].isBefore(upper);
+            boolean endsAfterLower = bounds[1] == null || bounds[1].isAfter(lower);
+            if (startsBeforeUpper && endsAfterLower) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static LocalDateTime truncate(LocalDateTime value, ArchivalTimeUnit unit) {
+        return switch (unit) {
+            case MINUTES, HOURS -> value.truncatedTo(ChronoUnit.HOURS);
+            case DAYS -> value.truncatedTo(ChronoUnit.DAYS);
+            case MONTH -> value.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            case YEAR -> value.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+        };
+    }
+
+    private static LocalDateTime next(LocalDateTime value, ArchivalTimeUnit unit) {
+        return switch (unit) {
+            case MINUTES, HOURS -> value.plusHours(1);
+            case DAYS -> value.plusDays(1);
+            case MONTH -> value.plusMonths(1);
+            case YEAR -> value.plusYears(1);
+        };
+    }
+
+    private static String suffixPattern(ArchivalTimeUnit unit) {
+        return switch (unit) {
+            case MINUTES, HOURS -> "yyyyMMddHH";
+            case DAYS -> "yyyyMMdd";
+            case MONTH -> "yyyyMM";
+            case YEAR -> "yyyy";
+        };
+    }
+}
@@ -0,0 +1,214 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.ArchivedDataPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of archived-data pages. Archived rows only change when a table is archived or aged out, so a page
+ * stays valid until {@link #invalidate(String)} is called for its table. The least recently used pages are evicted
+ * once more than {@code archival.query-cache.max-entries} pages or {@code archival.query-cache.max-rows} rows are
+ * held. Pages also expire after {@code archival.query-cache.ttl-seconds}, since other instances archive tables
+ * without invalidating this cache.
+ */
+@Component
+public class ArchivedDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivedDataCache.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${archival.query-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archival.query-cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${archival.query-cache.max-rows:100000}")
+    private long maxRows;
+
+    @Value("${archival.query-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, Long> generations = new HashMap<>();
+
+    private long cachedRows;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    public void registerMeters() {
+        hits = Counter.builder("archival.query-cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("archival.query-cache.requests").tag("result", "miss").register(meterRegistry);
+        evictions = Counter.builder("archival.query-cache.evictions").register(meterRegistry);
+        Gauge.builder("archival.query-cache.entries", this, cache -> cache.size(false)).register(meterRegistry);
+        Gauge.builder("archival.query-cache.rows", this, cache -> cache.size(true)).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached page of the query, loading and caching it on a miss.
+     */
+    public ArchivedDataPage get(String tableName, ArchivalQueryDTO queryParams, Loader loader) throws IOException, SQLException {
+        if (!enabled) {
+            return loader.load();
+        }
+        Key key = new Key(tableName, queryParams);
+        long generation;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+                hits.increment();
+                return entry.page;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            generation = generations.getOrDefault(tableName, 0L);
+        }
+        misses.increment();
+        ArchivedDataPage page = loader.load();
+        int rows = page.getRecords().size();
+        synchronized (entries) {
+            // a page read while the table was being archived may already be stale, so it is not kept
+            if (rows <= maxRows && generations.getOrDefault(tableName, 0L) == generation) {
+                Entry previous = entries.put(key, new Entry(page, System.nanoTime()));
+                if (previous != null) {
+                    cachedRows -= previous.page.getRecords().size();
+                }
+                cachedRows += rows;
+                evictOverflow();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drops every cached page of the table. Called whenever rows are archived into or deleted from it.
+     */
+    public void invalidate(String tableName) {
+        synchronized (entries) {
+            generations.merge(tableName, 1L, Long::sum);
+            int removed = 0;
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> cached = iterator.next();
+                if (cached.getKey().tableName.equals(tableName)) {
+                    cachedRows -= cached.getValue().page.getRecords().size();
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                logger.debug("Invalidated {} cached pages of table {}", removed, tableName);
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedRows > maxRows) && iterator.hasNext()) {
+            cachedRows -= iterator.next().getValue().page.getRecords().size();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            cachedRows -= removed.page.getRecords().size();
+        }
+    }
+
+    private double size(boolean rows) {
+        synchronized (entries) {
+            return rows ? cachedRows : entries.size();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        ArchivedDataPage load() throws IOException, SQLException;
+    }
+
+    private static final class Entry {
+        final ArchivedDataPage page;
+        final long loadedAt;
+
+        Entry(ArchivedDataPage page, long loadedAt) {
+            this.page = page;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Everything about a query that changes its page.
+     */
+    private static final class Key {
+        final String tableName;
+        final LocalDateTime startDate;
+        final LocalDateTime endDate;
+        final Integer page;
+        final Integer size;
+        final String sort;
+        final String continuationToken;
+        final List<String> fields;
+        final List<String> filter;
+
+        Key(String tableName, ArchivalQueryDTO queryParams) {
+            this.tableName = tableName;
+            this.startDate = queryParams.getStartDate();
+            this.endDate = queryParams.getEndDate();
+            this.page = queryParams.getPage();
+            this.size = queryParams.getSize();
+            this.sort = queryParams.getSort() != null ? queryParams.getSort().toLowerCase() : null;
+            this.continuationToken = queryParams.getContinuationToken();
+            this.fields = queryParams.getFields();
+            this.filter = queryParams.getFilter();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return tableName.equals(key.tableName) && Objects.equals(startDate, key.startDate)
+                    && Objects.equals(endDate, key.endDate) && Objects.equals(page, key.page)
+                    && Objects.equals(size, key.size) && Objects.equals(sort, key.sort)
+                    && Objects.equals(continuationToken, key.continuationToken) && Objects.equals(fields, key.fields)
+                    && Objects.equals(filter, key.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableName, startDate, endDate, page, size, sort, continuationToken, fields, filter);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.enums.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An authorized export of the archived rows of one table, written once the response body is streamed.
+ */
+public class ArchivedDataExport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivedDataExport.class);
+
+    private final ArchivalSink sink;
+    private final String archiveTableName;
+    private final ArchivedDataQuery query;
+    private final ArchivalQueryDTO queryParams;
+    private final ExportFormat format;
+    private final ObjectMapper objectMapper;
+
+    ArchivedDataExport(ArchivalSink sink, String archiveTableName, ArchivedDataQuery query, ArchivalQueryDTO queryParams,
+                       ExportFormat format, ObjectMapper objectMapper) {
+        this.sink = sink;
+        this.archiveTableName = archiveTableName;
+        this.query = query;
+        this.queryParams = queryParams;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public String getArchiveTableName() {
+        return archiveTableName;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        ArchivedRowWriter writer = ArchivedRowWriter.of(format, out, objectMapper);
+        try {
+            long exported = sink.export(archiveTableName, query, queryParams, writer);
+            writer.finish();
+            logger.info("Exported {} records of {} as {} in {} ms", exported, archiveTableName, format,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            // usually the client went away, which has already closed the cursor
+            logger.info("Export of {} stopped: {}", archiveTableName, e.getMessage());
+            throw e;
+        } catch (SQLException e) {
+            logger.error("Export of {} failed: {}", archiveTableName, e.getMessage());
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.utils.ContinuationToken;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The projection and column predicates of an archived-data query, checked against the schema of the table's archive
+ * and compiled into bind parameters, so only known column names ever reach the SQL. Sinks that filter in memory
+ * apply the same predicates through {@link #matches(Map)}.
+ */
+final class ArchivedDataQuery {
+
+    private final List<String> keyColumns;
+    private final List<String> columns;
+    private final List<ColumnPredicate> predicates;
+
+    private ArchivedDataQuery(List<String> keyColumns, List<String> columns, List<ColumnPredicate> predicates) {
+        this.keyColumns = keyColumns;
+        this.columns = columns;
+        this.predicates = predicates;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown column, operator or a value that does not fit the column type
+     */
+    static ArchivedDataQuery compile(TableSchemaCache.TableSchema schema, ArchivalQueryDTO queryParams) {
+        List<String> columns = null;
+        if (queryParams.getFields() != null && !queryParams.getFields().isEmpty()) {
+            // the order columns always come along, the page order and continuation token are built from them
+            Set<String> projection = new LinkedHashSet<>();
+            for (String field : queryParams.getFields()) {
+                projection.add(schema.columns.get(indexOfColumn(schema, field.trim())));
+            }
+            projection.addAll(ContinuationToken.orderColumns(schema.keyColumns));
+            columns = List.copyOf(projection);
+        }
+        List<ColumnPredicate> predicates = new ArrayList<>();
+        if (queryParams.getFilter() != null) {
+            for (String filter : queryParams.getFilter()) {
+                predicates.add(ColumnPredicate.parse(schema, filter));
+            }
+        }
+        return new ArchivedDataQuery(schema.keyColumns, columns, predicates);
+    }
+
+    List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    String selectList() {
+        return columns != null ? String.join(Constants.COMMA_SEPARATOR + " ", columns) : "*";
+    }
+
+    /**
+     * Adds the SQL condition of every predicate to {@code conditions} and its values to {@code params}.
+     */
+    void appendConditions(List<String> conditions, List<Object> params) {
+        for (ColumnPredicate predicate : predicates) {
+            conditions.add(predicate.sql());
+            params.addAll(predicate.values);
+        }
+    }
+
+    boolean matches(Map<String, Object> row) {
+        for (ColumnPredicate predicate : predicates) {
+            if (!predicate.matches(row.get(predicate.column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps only the projected columns of a row read in full.
+     */
+    Map<String, Object> project(Map<String, Object> row) {
+        if (columns == null) {
+            return row;
+        }
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String column : columns) {
+            projected.put(column, row.get(column));
+        }
+        return projected;
+    }
+
+    private static int indexOfColumn(TableSchemaCache.TableSchema schema, String column) {
+        for (int i = 0; i < schema.columns.size(); i++) {
+            if (schema.columns.get(i).equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(Constants.COLUMN_NOT_FOUND_MESSAGE + column);
+    }
+
+    /**
+     * One {@code column:operator:value} filter. {@code in} takes its values separated by {@code |}.
+     */
+    private static final class ColumnPredicate {
+        final String column;
+        final String operator;
+        final List<Object> values;
+
+        private ColumnPredicate(String column, String operator, List<Object> values) {
+            this.column = column;
+            this.operator = operator;
+            this.values = values;
+        }
+
+        static ColumnPredicate parse(TableSchemaCache.TableSchema schema, String filter) {
+            String[] parts = filter.split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(Constants.INVALID_FILTER_MESSAGE + filter);
+            }
+            int index = indexOfColumn(schema, parts[0].trim());
+            String operator = parts[1].trim().toLowerCase(Locale.ROOT);
+            if (!Constants.FILTER_OPERATORS.containsKey(operator)) {
+                throw new IllegalArgumentException(Constants.INVALID_FILTER_MESSAGE + filter);
+            }
+            List<String> rawValues = operator.equals("in") ? Arrays.asList(parts[2].split("\\|")) : Collections.singletonList(parts[2]);
+            List<Object> values = new ArrayList<>(rawValues.size());
+            for (String rawValue : rawValues) {
+                values.add(convert(rawValue.trim(), schema.columnTypes[index], filter));
+            }
+            return new ColumnPredicate(schema.columns.get(index), operator, values);
+        }
+
+        String sql() {
+            if (operator.equals("in")) {
+                return column + " IN (" + String.join(Constants.COMMA_SEPARATOR + " ", Collections.nCopies(values.size(), "?")) + ")";
+            }
+            return column + " " + Constants.FILTER_OPERATORS.get(operator) + " ?";
+        }
+
+        boolean matches(Object value) {
+            if (value == null) {
+                // like SQL, no comparison holds for null
+                return false;
+            }
+            if (operator.equals("in")) {
+                return values.stream().anyMatch(candidate -> ContinuationToken.compareValues(value, candidate) == 0);
+            }
+            int compared = ContinuationToken.compareValues(value, values.get(0));
+            return switch (operator) {
+                case "eq" -> compared == 0;
+                case "lt" -> compared < 0;
+                case "lte" -> compared <= 0;
+                case "gt" -> compared > 0;
+                default -> compared >= 0;
+            };
+        }
+
+        private static Object convert(String value, int jdbcType, String filter) {
+            try {
+                return switch (jdbcType) {
+                    case Types.BIGINT -> Long.valueOf(value);
+                    case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> Integer.valueOf(value);
+                    case Types.NUMERIC, Types.DECIMAL, Types.DOUBLE, Types.FLOAT, Types.REAL -> new BigDecimal(value);
+                    case Types.BOOLEAN, Types.BIT -> parseBoolean(value);
+                    case Types.DATE -> LocalDate.parse(value);
+                    case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> LocalDateTime.parse(value);
+                    default -> value;
+                };
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException(Constants.INVALID_FILTER_MESSAGE + filter);
+            }
+        }
+
+        private static Boolean parseBoolean(String value) {
+            if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                throw new NumberFormatException(value);
+            }
+            return Boolean.valueOf(value);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.enums.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Writes exported rows to an output stream one at a time, so an export never holds more than the current row.
+ */
+public abstract class ArchivedRowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final Writer out;
+
+    protected ArchivedRowWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static ArchivedRowWriter of(ExportFormat format, OutputStream out, ObjectMapper objectMapper) {
+        return format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out, objectMapper);
+    }
+
+    /**
+     * @throws InterruptedIOException once the exporting thread is interrupted, which stops the export
+     */
+    public void write(Map<String, Object> row) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Export was cancelled");
+        }
+        writeRow(row);
+    }
+
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    protected abstract void writeRow(Map<String, Object> row) throws IOException;
+
+    static final class NdjsonRowWriter extends ArchivedRowWriter {
+
+        private final ObjectMapper objectMapper;
+
+        NdjsonRowWriter(OutputStream out, ObjectMapper objectMapper) {
+            super(out);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected void writeRow(Map<String, Object> row) throws IOException {
+            out.write(objectMapper.writeValueAsString(row));
+            out.write('\n');
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header line taken from the columns of the first row.
+     */
+    static final class CsvRowWriter extends ArchivedRowWriter {
+
+        private boolean headerWritten;
+
+        CsvRowWriter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        protected void writeRow(Map<String, Object> row) throws IOException {
+            if (!headerWritten) {
+                writeLine(row.keySet().toArray());
+                headerWritten = true;
+            }
+            writeLine(row.values().toArray());
+        }
+
+        private void writeLine(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(escape(values[i]));
+            }
+            out.write("\r\n");
+        }
+
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString()
+                    : value instanceof byte[] bytes ? Base64.getEncoder().encodeToString(bytes)
+                    : value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
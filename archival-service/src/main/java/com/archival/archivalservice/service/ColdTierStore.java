@@ -0,0 +1,404 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.utils.ColumnarSegmentFile;
+import com.archival.archivalservice.utils.FileLocks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Cold tier of the archive on disk. Before retention removes rows from an {@code _archive} table they are
+ * exported into compressed columnar segment files, so aged data stays queryable without occupying the archival DB.
+ * Every archive table has its own directory with a {@code manifest.json} that lists the segments and the time range
+ * each of them covers per date and timestamp column.
+ * <p>
+ * With leases on, any instance may apply retention to a table and later another one may read it, so the directory
+ * has to be on storage every instance mounts, which {@code archival.cold-tier.shared} confirms. The manifest is
+ * therefore read from disk on every use, under a shared lock on {@code manifest.lock}, and exports of a table are
+ * serialized across instances by an exclusive lock on {@code export.lock}. Segment files get unique names, so
+ * instances never write to the same file.
+ */
+@Component
+public class ColdTierStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdTierStore.class);
+
+    private static final String MANIFEST_FILE = "manifest.json";
+
+    private static final String MANIFEST_LOCK_FILE = "manifest.lock";
+
+    private static final String EXPORT_LOCK_FILE = "export.lock";
+
+    private static final String SEGMENT_EXTENSION = ".seg";
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${archival.cold-tier.directory:}")
+    private String directory;
+
+    @Value("${archival.cold-tier.shared:false}")
+    private boolean shared;
+
+    @Value("${archival.lease.enabled:true}")
+    private boolean leasesEnabled;
+
+    @Value("${archival.cold-tier.segment-rows:100000}")
+    private int segmentRows;
+
+    @Value("${archival.pipeline.fetch-size:1000}")
+    private int fetchSize;
+
+    private final FileLocks fileLocks = new FileLocks();
+
+    @PostConstruct
+    public void checkDirectory() {
+        if (isEnabled() && leasesEnabled && !shared) {
+            throw new IllegalStateException("archival.cold-tier.directory " + directory + " must be shared by all instances when"
+                    + " archival leases are enabled, set archival.cold-tier.shared=true once it is or disable archival.lease.enabled");
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null && !directory.isBlank();
+    }
+
+    /**
+     * Writes the rows of {@code archiveTableName} older than {@code threshold} into new segments and records them
+     * in the manifest. The manifest is only replaced once all segments are on disk, so an interrupted export leaves
+     * the cold tier as it was.
+     * <p>
+     * The manifest also keeps, per column, the threshold rows were exported up to and the threshold retention
+     * deleted them up to, which {@link #deleted} records. When a delete failed, the rows below the export threshold
+     * are already in the cold tier, so the next export starts there instead of writing them a second time. Otherwise
+     * every row below {@code threshold} is exported, including rows that reached the archive late.
+     *
+     * @return the lower bound of the exported rows retention may delete below {@code threshold}, {@code null} when
+     * that is every row below it
+     */
+    public LocalDateTime export(String archiveTableName, String columnName, LocalDateTime threshold) throws SQLException, IOException {
+        Path tableDirectory = Files.createDirectories(Paths.get(directory, archiveTableName));
+        return fileLocks.exclusive(tableDirectory.resolve(EXPORT_LOCK_FILE), () -> {
+            Manifest manifest = readManifest(tableDirectory);
+            LocalDateTime exportedBefore = manifest.pendingExport(columnName);
+            LocalDateTime deletableFrom = exportedBefore != null ? manifest.getDeletedBefore().get(columnName) : null;
+            if (exportedBefore != null && !threshold.isAfter(exportedBefore)) {
+                logger.debug("Rows of {} older than {} were already exported to the cold tier", archiveTableName, exportedBefore);
+                return deletableFrom;
+            }
+            String query = "SELECT * FROM " + archiveTableName + Constants.WHERE_CLAUSE + columnName + " < ?"
+                    + (exportedBefore != null ? Constants.AND_CLAUSE + columnName + " >= ?" : "")
+                    + Constants.ORDER_BY + columnName;
+            long exported = 0;
+            try (Connection conn = archivalDataSource.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                // PostgreSQL only streams with a cursor inside a transaction
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setFetchSize(fetchSize);
+                    stmt.setObject(1, threshold);
+                    if (exportedBefore != null) {
+                        stmt.setObject(2, exportedBefore);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        SegmentBuilder builder = new SegmentBuilder(rs.getMetaData());
+                        while (rs.next()) {
+                            builder.add(rs);
+                            if (builder.rows.size() >= segmentRows) {
+                                exported += builder.flush(tableDirectory, manifest);
+                            }
+                        }
+                        exported += builder.flush(tableDirectory, manifest);
+                    }
+                } finally {
+                    conn.rollback();
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+            // segments and the new threshold become visible together
+            manifest.getExportedBefore().put(columnName, threshold);
+            writeManifest(tableDirectory, manifest);
+            logger.info("Exported {} records of {} older than {} to the cold tier", exported, archiveTableName, threshold);
+            return deletableFrom;
+        });
+    }
+
+    /**
+     * Records that retention deleted the rows of {@code archiveTableName} below {@code threshold}, so the next export
+     * covers every row below its own threshold again.
+     */
+    public void deleted(String archiveTableName, String columnName, LocalDateTime threshold) throws IOException {
+        Path tableDirectory = Paths.get(directory, archiveTableName);
+        fileLocks.exclusive(tableDirectory.resolve(EXPORT_LOCK_FILE), () -> {
+            Manifest manifest = readManifest(tableDirectory);
+            manifest.getDeletedBefore().put(columnName, threshold);
+            writeManifest(tableDirectory, manifest);
+            return null;
+        });
+    }
+
+    /**
+     * Whether any segment of the table may hold rows whose {@code columnName} lies in {@code [from, to]}.
+     * Open bounds are passed as {@code null}.
+     */
+    public boolean overlaps(String archiveTableName, String columnName, LocalDateTime from, LocalDateTime to) {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            return readManifest(Paths.get(directory, archiveTableName)).getSegments().stream()
+                    .anyMatch(segment -> segment.overlaps(columnName, from, to));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable cold tier manifest of " + archiveTableName, e);
+        }
+    }
+
+    /**
+     * Reads the cold rows whose {@code columnName} lies in {@code [from, to]} and that {@code filter} accepts, keeping
+     * the first {@code limit} of them in {@code order}. Only the segments whose time range overlaps the bounds are
+     * opened.
+     */
+    public List<Map<String, Object>> read(String archiveTableName, String columnName, LocalDateTime from, LocalDateTime to,
+                                          Comparator<Map<String, Object>> order, Predicate<Map<String, Object>> filter,
+                                          int limit) throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        Path tableDirectory = Paths.get(directory, archiveTableName);
+        Long lower = from != null ? ColumnarSegmentFile.epochMicros(from) : null;
+        Long upper = to != null ? ColumnarSegmentFile.epochMicros(to) : null;
+        for (Segment segment : readManifest(tableDirectory).getSegments()) {
+            if (!segment.overlaps(columnName, from, to)) {
+                continue;
+            }
+            ColumnarSegmentFile.Reader reader = ColumnarSegmentFile.open(tableDirectory.resolve(segment.getFile()));
+            Object[] keys = reader.readColumn(reader.indexOf(columnName));
+            List<Integer> matches = new ArrayList<>();
+            for (int row = 0; row < keys.length; row++) {
+                if (keys[row] == null) {
+                    continue;
+                }
+                long key = ColumnarSegmentFile.epochMicros(keys[row]);
+                if ((lower == null || key >= lower) && (upper == null || key <= upper)) {
+                    matches.add(row);
+                }
+            }
+            if (matches.isEmpty()) {
+                continue;
+            }
+            List<String> names = reader.names();
+            Object[][] columns = new Object[names.size()][];
+            for (int column = 0; column < names.size(); column++) {
+                columns[column] = reader.readColumn(column);
+            }
+            for (int row : matches) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                for (int column = 0; column < names.size(); column++) {
+                    record.put(names.get(column), columns[column][row]);
+                }
+                if (filter.test(record)) {
+                    result.add(record);
+                }
+            }
+            // keep only what the caller can use, so a wide range does not pile up every cold row in memory
+            result.sort(order);
+            if (result.size() > limit) {
+                result.subList(limit, result.size()).clear();
+            }
+        }
+        return result;
+    }
+
+    private Manifest readManifest(Path tableDirectory) throws IOException {
+        Path file = tableDirectory.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return new Manifest();
+        }
+        return fileLocks.shared(tableDirectory.resolve(MANIFEST_LOCK_FILE), () -> objectMapper.readValue(file.toFile(), Manifest.class));
+    }
+
+    private void writeManifest(Path tableDirectory, Manifest manifest) throws IOException {
+        fileLocks.exclusive(tableDirectory.resolve(MANIFEST_LOCK_FILE), () -> {
+            Path temporary = tableDirectory.resolve(MANIFEST_FILE + ".tmp");
+            objectMapper.writeValue(temporary.toFile(), manifest);
+            Files.move(temporary, tableDirectory.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return null;
+        });
+    }
+
+    /**
+     * Collects the rows of one segment and their time ranges until it is flushed to disk.
+     */
+    private static final class SegmentBuilder {
+        private final List<String> names = new ArrayList<>();
+        private final byte[] kinds;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        SegmentBuilder(ResultSetMetaData metaData) throws SQLException {
+            kinds = new byte[metaData.getColumnCount()];
+            for (int column = 0; column < kinds.length; column++) {
+                names.add(metaData.getColumnName(column + 1));
+                kinds[column] = ColumnarSegmentFile.kindOf(metaData.getColumnType(column + 1));
+            }
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            Object[] row = new Object[kinds.length];
+            for (int column = 0; column < kinds.length; column++) {
+                row[column] = kinds[column] == ColumnarSegmentFile.TIMESTAMP ? rs.getTimestamp(column + 1)
+                        : kinds[column] == ColumnarSegmentFile.STRING ? rs.getString(column + 1)
+                        : rs.getObject(column + 1);
+            }
+            rows.add(row);
+        }
+
+        int flush(Path tableDirectory, Manifest manifest) throws IOException {
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            Map<String, long[]> timeRanges = new HashMap<>();
+            for (int column = 0; column < kinds.length; column++) {
+                if (kinds[column] != ColumnarSegmentFile.TIMESTAMP && kinds[column] != ColumnarSegmentFile.DATE) {
+                    continue;
+                }
+                long[] range = null;
+                for (Object[] row : rows) {
+                    if (row[column] != null) {
+                        long value = ColumnarSegmentFile.epochMicros(row[column]);
+                        range = range == null ? new long[]{value, value}
+                                : new long[]{Math.min(range[0], value), Math.max(range[1], value)};
+                    }
+                }
+                if (range != null) {
+                    timeRanges.put(names.get(column), range);
+                }
+            }
+            Segment segment = new Segment();
+            segment.setFile("segment-" + UUID.randomUUID() + SEGMENT_EXTENSION);
+            segment.setRowCount(rows.size());
+            segment.setTimeRanges(timeRanges);
+            ColumnarSegmentFile.write(tableDirectory.resolve(segment.getFile()), names, kinds, rows);
+            manifest.getSegments().add(segment);
+            int flushed = rows.size();
+            rows.clear();
+            return flushed;
+        }
+    }
+
+    /**
+     * The segments of one archive table and, per archival column, the thresholds rows have been exported and deleted
+     * up to, persisted as its {@code manifest.json}.
+     */
+    public static class Manifest {
+        private List<Segment> segments = new ArrayList<>();
+        private Map<String, LocalDateTime> exportedBefore = new HashMap<>();
+        private Map<String, LocalDateTime> deletedBefore = new HashMap<>();
+
+        /**
+         * The threshold of an export of {@code columnName} whose rows retention has not deleted yet, or {@code null}.
+         */
+        LocalDateTime pendingExport(String columnName) {
+            LocalDateTime exported = exportedBefore.get(columnName);
+            LocalDateTime deleted = deletedBefore.get(columnName);
+            return exported != null && (deleted == null || deleted.isBefore(exported)) ? exported : null;
+        }
+
+        public List<Segment> getSegments() {
+            return segments;
+        }
+
+        public void setSegments(List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        public Map<String, LocalDateTime> getExportedBefore() {
+            return exportedBefore;
+        }
+
+        public void setExportedBefore(Map<String, LocalDateTime> exportedBefore) {
+            this.exportedBefore = exportedBefore;
+        }
+
+        public Map<String, LocalDateTime> getDeletedBefore() {
+            return deletedBefore;
+        }
+
+        public void setDeletedBefore(Map<String, LocalDateTime> deletedBefore) {
+            this.deletedBefore = deletedBefore;
+        }
+    }
+
+    /**
+     * One segment file, its row count and the smallest and largest value of each date or timestamp column in
+     * microseconds since the epoch.
+     */
+    public static class Segment {
+        private String file;
+        private int rowCount;
+        private Map<String, long[]> timeRanges = new HashMap<>();
+
+        boolean overlaps(String columnName, LocalDateTime from, LocalDateTime to) {
+            long[] range = timeRanges.entrySet().stream()
+                    .filter(entry -> entry.getKey().equalsIgnoreCase(columnName))
+                    .map(Map.Entry::getValue)
+                    .findFirst().orElse(null);
+            return range != null
+                    && (from == null || range[1] >= ColumnarSegmentFile.epochMicros(from))
+                    && (to == null || range[0] <= ColumnarSegmentFile.epochMicros(to));
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public void setRowCount(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        public Map<String, long[]> getTimeRanges() {
+            return timeRanges;
+        }
+
+        public void setTimeRanges(Map<String, long[]> timeRanges) {
+            this.timeRanges = timeRanges;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.utils.ContinuationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Archives into the {@code _archive} table of the archival DB. This is the default sink.
+ */
+@Component
+public class JdbcArchivalSink implements ArchivalSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcArchivalSink.class);
+
+    @Autowired
+    private ColdTierStore coldTierStore;
+
+    @Autowired
+    private ArchivePartitionManager archivePartitionManager;
+
+    @Autowired
+    private TableSchemaCache tableSchemaCache;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalBatchDataSource;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_EXPORT_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalExportDataSource;
+
+    @Value("${archival.pipeline.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    public String getName() {
+        return Constants.JDBC_SINK;
+    }
+
+    @Override
+    public boolean isArchiveTable() {
+        return true;
+    }
+
+    @Override
+    public int write(TableSchemaCache.TableSchema schema, String columnName, List<Object[]> records) {
+        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalBatchDataSource);
+        // the cached column types spare the driver from looking up parameter metadata for null values
+        int[] rowsInserted = archivalJdbcTemplate.batchUpdate(schema.insertQuery, records, schema.columnTypes);
+        return Arrays.stream(rowsInserted).sum();
+    }
+
+    @Override
+    public TableSchemaCache.TableSchema archiveSchema(String archiveTableName) throws SQLException {
+        return tableSchemaCache.getArchive(archiveTableName);
+    }
+
+    @Override
+    public long deleteBefore(String archiveTableName, String columnName, LocalDateTime threshold) throws SQLException, IOException {
+        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalBatchDataSource);
+
+        LocalDateTime exportedFrom = null;
+        if (coldTierStore.isEnabled()) {
+            // a failed export throws before anything is deleted, and only what is in the cold tier is deleted after it
+            exportedFrom = coldTierStore.export(archiveTableName, columnName, threshold);
+        }
+        long droppedRows = 0;
+        if (exportedFrom == null && archivePartitionManager.isPartitioned(archiveTableName, columnName)) {
+            droppedRows = archivePartitionManager.dropExpiredPartitions(archiveTableName, threshold);
+        }
+        // on a partitioned archive this only reaches the partition that straddles the threshold
+        String deleteQuery = "DELETE FROM " + archiveTableName + Constants.WHERE_CLAUSE + columnName + " < ?"
+                + (exportedFrom != null ? Constants.AND_CLAUSE + columnName + " >= ?" : "");
+        int rowsDeleted = exportedFrom != null ? archivalJdbcTemplate.update(deleteQuery, threshold, exportedFrom)
+                : archivalJdbcTemplate.update(deleteQuery, threshold);
+        logger.info("Deleted {} old records from archival DB for table: {}", rowsDeleted, archiveTableName);
+        if (coldTierStore.isEnabled()) {
+            coldTierStore.deleted(archiveTableName, columnName, threshold);
+        }
+
+        return droppedRows + rowsDeleted;
+    }
+
+    @Override
+    public boolean keepsExpiredRows() {
+        // exported rows are still read back from the cold tier
+        return coldTierStore.isEnabled();
+    }
+
+    @Override
+    public List<Map<String, Object>> read(String archiveTableName, ArchivedDataQuery dataQuery, ArchivalQueryDTO queryParams,
+                                          ContinuationToken after) throws IOException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = selectQuery(archiveTableName, dataQuery, queryParams, after, params);
+        JdbcTemplate archivalJdbcTemplate = new JdbcTemplate(archivalDataSource);
+
+        int offset = after != null ? 0 : queryParams.getPage() * queryParams.getSize();
+        if (coldTierStore.overlaps(archiveTableName, Constants.CREATED_AT_COLUMN, queryParams.getStartDate(), queryParams.getEndDate())) {
+            return readTiered(archiveTableName, query, params, queryParams, dataQuery, after, offset);
+        }
+        query.append(Constants.LIMIT_OFFSET_CLAUSE);
+        params.add(queryParams.getSize());
+        params.add(offset);
+
+        return archivalJdbcTemplate.queryForList(query.toString(), params.toArray());
+    }
+
+    /**
+     * Streams the whole range through a server side cursor, {@code archival.pipeline.fetch-size} rows at a time, on
+     * a connection of the export pool, since the cursor stays open for as long as the client keeps reading. A failed
+     * write, such as a disconnected client, closes the cursor right away.
+     */
+    @Override
+    public long export(String archiveTableName, ArchivedDataQuery dataQuery, ArchivalQueryDTO queryParams, ArchivedRowWriter writer)
+            throws IOException, SQLException {
+        if (coldTierStore.overlaps(archiveTableName, Constants.CREATED_AT_COLUMN, queryParams.getStartDate(), queryParams.getEndDate())) {
+            // cold rows have to be merged in order, which the paged export does one page at a time
+            return ArchivalSink.super.export(archiveTableName, dataQuery, queryParams, writer);
+        }
+        List<Object> params = new ArrayList<>();
+        String query = selectQuery(archiveTableName, dataQuery, queryParams, null, params).toString();
+        RowMapper<Map<String, Object>> rowMapper = new ColumnMapRowMapper();
+        long exported = 0;
+        try (Connection conn = archivalExportDataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            boolean readOnly = conn.isReadOnly();
+            // PostgreSQL only streams with a cursor inside a transaction, which an export never writes in
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(fetchSize);
+                new ArgumentPreparedStatementSetter(params.toArray()).setValues(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        writer.write(rowMapper.mapRow(rs, 0));
+                        exported++;
+                    }
+                }
+            } finally {
+                conn.rollback();
+                conn.setReadOnly(readOnly);
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Builds the filtered and ordered select of a page, without its limit, adding the bind values to {@code params}.
+     */
+    private StringBuilder selectQuery(String archiveTableName, ArchivedDataQuery dataQuery, ArchivalQueryDTO queryParams,
+                                      ContinuationToken after, List<Object> params) {
+        StringBuilder query = new StringBuilder("SELECT " + dataQuery.selectList() + " FROM " + archiveTableName);
+        boolean descending = Constants.DESC_SORT.equalsIgnoreCase(queryParams.getSort());
+        List<String> keyColumns = dataQuery.getKeyColumns();
+        List<String> orderColumns = ContinuationToken.orderColumns(keyColumns);
+
+        List<String> conditions = new ArrayList<>();
+        if (queryParams.getStartDate() != null) {
+            conditions.add(Constants.GREATER_THAN_EQUAL_CLAUSE);
+            params.add(queryParams.getStartDate());
+        }
+        if (queryParams.getEndDate() != null) {
+            conditions.add(Constants.LESS_THAN_EQUAL_CLAUSE);
+            params.add(queryParams.getEndDate());
+        }
+        dataQuery.appendConditions(conditions, params);
+        if (after != null) {
+            // a row value comparison the (created_at, key) index can seek to, however deep the page is
+            conditions.add("(" + String.join(Constants.COMMA_SEPARATOR + " ", orderColumns) + (descending ? ") < (" : ") > (")
+                    + String.join(Constants.COMMA_SEPARATOR + " ", Collections.nCopies(orderColumns.size(), "?")) + ")");
+            params.addAll(Arrays.asList(after.getValues()));
+        }
+        if (!conditions.isEmpty()) {
+            query.append(Constants.WHERE_CLAUSE).append(String.join(Constants.AND_CLAUSE, conditions));
+        }
+
+        String sortOrder = descending ? Constants.DESC_SORT_UPPER : Constants.ASC_SORT;
+        query.append(Constants.ORDER_BY_CLAUSE).append(sortOrder);
+        // created_at leads the order even when the archive's key contains it as well
+        for (String keyColumn : orderColumns.subList(1, orderColumns.size())) {
+            query.append(Constants.COMMA_SEPARATOR).append(" ").append(keyColumn).append(" ").append(sortOrder);
+        }
+        return query;
+    }
+
+    /**
+     * Serves a page whose range reaches into the cold tier. Both tiers are read up to the end of the page in the
+     * requested order and merged, so the page is the same as if every row were still in the archival DB.
+     */
+    private List<Map<String, Object>> readTiered(String archiveTableName, StringBuilder query, List<Object> params,
+                                                 ArchivalQueryDTO queryParams, ArchivedDataQuery dataQuery,
+                                                 ContinuationToken after, int offset) throws IOException {
+        boolean descending = Constants.DESC_SORT.equalsIgnoreCase(queryParams.getSort());
+        Comparator<Map<String, Object>> order = ContinuationToken.order(ContinuationToken.orderColumns(dataQuery.getKeyColumns()), descending);
+        int window = offset + queryParams.getSize();
+        query.append(Constants.LIMIT_CLAUSE);
+        params.add(window);
+        List<Map<String, Object>> rows = new ArrayList<>(new JdbcTemplate(archivalDataSource).queryForList(query.toString(), params.toArray()));
+        rows.addAll(coldTierStore.read(archiveTableName, Constants.CREATED_AT_COLUMN, queryParams.getStartDate(),
+                queryParams.getEndDate(), order, record -> dataQuery.matches(record) && (after == null || after.isFollowedBy(record)),
+                window).stream().map(dataQuery::project).toList());
+        rows.sort(order);
+        return rows.subList(Math.min(offset, rows.size()), Math.min(window, rows.size()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.utils.PartitionBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Archives whole partitions of a PostgreSQL table that is range-partitioned on its archival column. A partition
+ * whose upper bound is not above the archive threshold holds only eligible rows, so it is copied into the archive
+ * in one statement and dropped, instead of being deleted row by row.
+ */
+@Component
+public class PartitionArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionArchiver.class);
+
+    @Autowired
+    @Qualifier(Constants.APP_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource appDataSource;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Autowired
+    private PostgresCopyTransfer postgresCopyTransfer;
+
+    /**
+     * Returns the leaf partitions of {@code tableName} that lie entirely below {@code threshold}, oldest first.
+     * The list is empty unless the table is range-partitioned on exactly {@code columnName}.
+     */
+    public List<Partition> findEligiblePartitions(String tableName, String columnName, LocalDateTime threshold) {
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+        String partitionKey = appJdbcTemplate.queryForObject(Constants.PARTITION_KEY_QUERY, String.class, tableName);
+        if (partitionKey == null || !partitionKey.equalsIgnoreCase(Constants.RANGE_PARTITION_KEY_PREFIX + columnName + ")")) {
+            return List.of();
+        }
+
+        List<Partition> eligible = new ArrayList<>();
+        appJdbcTemplate.query(Constants.LEAF_PARTITIONS_QUERY, rs -> {
+            String name = rs.getString(1);
+            LocalDateTime upper = PartitionBounds.upper(rs.getString(2));
+            if (upper != null && !upper.isAfter(threshold)) {
+                eligible.add(new Partition(name, upper));
+            }
+        }, tableName);
+        eligible.sort(Comparator.comparing(partition -> partition.upper));
+        return eligible;
+    }
+
+    /**
+     * Copies every row of the partition into the archive table and drops the partition. The partition is locked
+     * against writes for the copy, and it is only dropped in the same app DB transaction once the archive holds
+     * its rows. With {@code serverSide} the rows are moved by one {@code INSERT ... SELECT} on the app DB,
+     * otherwise they are streamed with binary COPY into the archival DB.
+     *
+     * @return the number of archived rows
+     */
+    public long archivePartition(Partition partition, String archiveTableName, String columnList, boolean serverSide)
+            throws SQLException {
+        String selectQuery = "SELECT " + columnList + " FROM " + partition.name;
+        try (Connection appConn = appDataSource.getConnection()) {
+            boolean autoCommit = appConn.getAutoCommit();
+            appConn.setAutoCommit(false);
+            try (Statement stmt = appConn.createStatement()) {
+                stmt.execute("LOCK TABLE " + partition.name + " IN SHARE MODE");
+                long archived;
+                if (serverSide) {
+                    archived = stmt.executeUpdate("INSERT INTO " + archiveTableName + " (" + columnList + ") " + selectQuery);
+                } else {
+                    try (Connection archivalConn = archivalDataSource.getConnection()) {
+                        archived = postgresCopyTransfer.copy(appConn, selectQuery, archivalConn, archiveTableName, columnList);
+                    }
+                }
+                stmt.execute("DROP TABLE " + partition.name);
+                appConn.commit();
+                logger.info("Archived {} records of partition {} and dropped it", archived, partition.name);
+                return archived;
+            } catch (SQLException | RuntimeException e) {
+                appConn.rollback();
+                throw e;
+            } finally {
+                appConn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * A leaf partition and the exclusive upper bound of its range.
+     */
+    public static final class Partition {
+        final String name;
+        final LocalDateTime upper;
+
+        Partition(String name, LocalDateTime upper) {
+            this.name = name;
+            this.upper = upper;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
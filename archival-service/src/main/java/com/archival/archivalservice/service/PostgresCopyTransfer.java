@@ -0,0 +1,92 @@
+package com.archival.archivalservice.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Moves rows between two PostgreSQL connections with the binary COPY protocol, streaming the
+ * {@code COPY ... TO STDOUT} output of the source straight into {@code COPY ... FROM STDIN} on the target.
+ */
+@Component
+public class PostgresCopyTransfer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresCopyTransfer.class);
+
+    private static final DateTimeFormatter TIMESTAMP_LITERAL_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    public boolean isSupported(DataSource... dataSources) {
+        for (DataSource dataSource : dataSources) {
+            try (Connection conn = dataSource.getConnection()) {
+                if (!conn.isWrapperFor(PGConnection.class)) {
+                    return false;
+                }
+            } catch (SQLException e) {
+                logger.warn("Unable to check COPY support: {}", e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the rows of {@code selectQuery} on the source connection into {@code targetTable (columnList)}.
+     * The select must be fully inlined since COPY does not accept bind parameters.
+     *
+     * @return the number of rows written to the target
+     */
+    public long copy(Connection source, String selectQuery, Connection target, String targetTable, String columnList)
+            throws SQLException {
+        CopyManager sourceCopy = source.unwrap(PGConnection.class).getCopyAPI();
+        CopyManager targetCopy = target.unwrap(PGConnection.class).getCopyAPI();
+
+        CopyOut copyOut = sourceCopy.copyOut("COPY (" + selectQuery + ") TO STDOUT (FORMAT binary)");
+        CopyIn copyIn = null;
+        try {
+            copyIn = targetCopy.copyIn("COPY " + targetTable + " (" + columnList + ") FROM STDIN (FORMAT binary)");
+            byte[] buffer;
+            while ((buffer = copyOut.readFromCopy()) != null) {
+                copyIn.writeToCopy(buffer, 0, buffer.length);
+            }
+            long written = copyIn.endCopy();
+            copyIn = null;
+            return written;
+        } finally {
+            if (copyOut.isActive()) {
+                copyOut.cancelCopy();
+            }
+            if (copyIn != null && copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Renders a value as an untyped SQL literal so PostgreSQL coerces it to the type of the column it is
+     * compared with.
+     */
+    public String toLiteral(Object value) {
+        if (value instanceof SqlParameterValue parameterValue) {
+            value = parameterValue.getValue();
+        }
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        String text = value instanceof LocalDateTime dateTime ? TIMESTAMP_LITERAL_FORMAT.format(dateTime) : value.toString();
+        return "'" + text.replace("'", "''") + "'";
+    }
+}
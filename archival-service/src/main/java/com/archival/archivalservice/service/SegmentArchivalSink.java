@@ -0,0 +1,642 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.utils.ColumnarSegmentFile;
+import com.archival.archivalservice.utils.ContinuationToken;
+import com.archival.archivalservice.utils.FileLocks;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archives into append-only segment files on disk instead of a database, so very write-heavy tables pay
+ * for neither index maintenance nor WAL in the archival DB. Each archive table has a directory of segments:
+ * <ul>
+ *     <li>{@code segment-NNNNNN.log} starts with a header naming the columns and is followed by length-prefixed
+ *     records, appended sequentially and read back through a memory mapping.</li>
+ *     <li>{@code segment-NNNNNN.idx} is a sparse time index with one entry per block of records: its offset and
+ *     length, its record count and the smallest and largest value of the archival column and of {@code created_at}.</li>
+ * </ul>
+ * Reads visit the blocks whose {@code created_at} range meets the query in page order and stop as soon as no
+ * further block can change the page, and retention deletes whole segments once all of their blocks have expired.
+ * <p>
+ * With leases on, successive runs of a table may land on different instances, so the directory has to be on storage
+ * every instance mounts, which {@code archival.segment-store.shared} confirms. Nothing is kept open between calls:
+ * each batch reopens the newest segment and reads its end from the index under an exclusive lock on the table's
+ * {@code segments.lock}, which retention takes as well, while reads hold it shared.
+ */
+@Component
+public class SegmentArchivalSink implements ArchivalSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentArchivalSink.class);
+
+    private static final int MAGIC = 0x41534c31;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String DATA_EXTENSION = ".log";
+
+    private static final String INDEX_EXTENSION = ".idx";
+
+    private static final String LOCK_FILE = "segments.lock";
+
+    private static final int INDEX_ENTRY_BYTES = 48;
+
+    /**
+     * Blocks are read through mappings of at most this many bytes, so segments of any size can be read.
+     */
+    private static final long MAPPING_BYTES = 64L << 20;
+
+    @Value("${archival.segment-store.directory:}")
+    private String directory;
+
+    @Value("${archival.segment-store.shared:false}")
+    private boolean shared;
+
+    @Value("${archival.lease.enabled:true}")
+    private boolean leasesEnabled;
+
+    @Value("${archival.segment-store.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Value("${archival.segment-store.index-interval:1024}")
+    private int indexInterval;
+
+    private final FileLocks fileLocks = new FileLocks();
+
+    @PostConstruct
+    public void checkDirectory() {
+        if (directory != null && !directory.isBlank() && leasesEnabled && !shared) {
+            throw new IllegalStateException("archival.segment-store.directory " + directory + " must be shared by all instances"
+                    + " when archival leases are enabled, set archival.segment-store.shared=true once it is or disable archival.lease.enabled");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return Constants.SEGMENT_SINK;
+    }
+
+    @Override
+    public int write(TableSchemaCache.TableSchema schema, String columnName, List<Object[]> records) {
+        if (directory == null || directory.isBlank()) {
+            throw new IllegalStateException("archival.segment-store.directory must be set to archive table " + schema.tableName
+                    + " into the segment sink");
+        }
+        String archiveTableName = schema.tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        byte[] kinds = new byte[schema.columnTypes.length];
+        for (int column = 0; column < kinds.length; column++) {
+            kinds[column] = ColumnarSegmentFile.kindOf(schema.columnTypes[column]);
+        }
+        SegmentHeader header = new SegmentHeader(schema.columns, kinds, schema.keyColumns, columnName);
+        try {
+            Path tableDirectory = Files.createDirectories(Paths.get(directory, archiveTableName));
+            fileLocks.exclusive(tableDirectory.resolve(LOCK_FILE), () -> {
+                SegmentWriter writer = openWriter(tableDirectory, header);
+                try {
+                    writer.append(records, indexInterval);
+                } finally {
+                    writer.close();
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to the segment store of " + archiveTableName, e);
+        }
+        return records.size();
+    }
+
+    /**
+     * The schema written into the newest segment of the table.
+     */
+    @Override
+    public TableSchemaCache.TableSchema archiveSchema(String archiveTableName) throws IOException {
+        SegmentHeader header = shared(archiveTableName, tableDirectory -> {
+            List<Path> existing = segments(tableDirectory);
+            return existing.isEmpty() ? null : SegmentHeader.read(existing.get(existing.size() - 1));
+        });
+        if (header == null) {
+            throw new IllegalArgumentException(Constants.NO_COLUMNS_FOUND_MESSAGE + archiveTableName);
+        }
+        int[] columnTypes = new int[header.kinds.length];
+        for (int column = 0; column < columnTypes.length; column++) {
+            columnTypes[column] = ColumnarSegmentFile.jdbcTypeOf(header.kinds[column]);
+        }
+        return new TableSchemaCache.TableSchema(archiveTableName, header.names, columnTypes, header.keyColumns);
+    }
+
+    @Override
+    public long deleteBefore(String archiveTableName, String columnName, LocalDateTime threshold) throws IOException {
+        long thresholdMicros = ColumnarSegmentFile.epochMicros(threshold);
+        Path tableDirectory = tableDirectory(archiveTableName);
+        if (tableDirectory == null) {
+            return 0;
+        }
+        return fileLocks.exclusive(tableDirectory.resolve(LOCK_FILE), () -> {
+            long deleted = 0;
+            for (Path dataFile : segments(tableDirectory)) {
+                SegmentHeader header = SegmentHeader.read(dataFile);
+                if (!header.indexColumn.equalsIgnoreCase(columnName)) {
+                    logger.debug("Segment {} is indexed on {}, not {}, keeping it", dataFile, header.indexColumn, columnName);
+                    continue;
+                }
+                List<IndexEntry> entries = IndexEntry.readAll(indexFile(dataFile));
+                boolean expired = !entries.isEmpty() && entries.stream()
+                        .allMatch(entry -> entry.min <= entry.max && entry.max < thresholdMicros);
+                if (!expired) {
+                    continue;
+                }
+                Files.delete(indexFile(dataFile));
+                Files.delete(dataFile);
+                long rows = entries.stream().mapToLong(entry -> entry.count).sum();
+                deleted += rows;
+                logger.info("Deleted expired segment {} of {} ({} records)", dataFile.getFileName(), archiveTableName, rows);
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public List<Map<String, Object>> read(String archiveTableName, ArchivedDataQuery query, ArchivalQueryDTO queryParams,
+                                          ContinuationToken after) throws IOException {
+        boolean descending = Constants.DESC_SORT.equalsIgnoreCase(queryParams.getSort());
+        int offset = after != null ? 0 : queryParams.getPage() * queryParams.getSize();
+        int window = offset + queryParams.getSize();
+        Long lower = queryParams.getStartDate() != null ? ColumnarSegmentFile.epochMicros(queryParams.getStartDate()) : null;
+        Long upper = queryParams.getEndDate() != null ? ColumnarSegmentFile.epochMicros(queryParams.getEndDate()) : null;
+        // rows before the token's created_at cannot be on the page either
+        Object afterTime = after != null ? after.getValues()[0] : null;
+        if (afterTime != null) {
+            long time = ColumnarSegmentFile.epochMicros(afterTime);
+            if (descending) {
+                upper = upper == null ? time : Math.min(upper, time);
+            } else {
+                lower = lower == null ? time : Math.max(lower, time);
+            }
+        }
+        Comparator<Map<String, Object>> order = ContinuationToken.order(ContinuationToken.orderColumns(query.getKeyColumns()), descending);
+        Long from = lower;
+        Long to = upper;
+        List<Map<String, Object>> rows = shared(archiveTableName, tableDirectory ->
+                readRows(tableDirectory, query, descending, window, from, to, after, order));
+        if (rows == null) {
+            return List.of();
+        }
+        return rows.subList(Math.min(offset, rows.size()), rows.size());
+    }
+
+    /**
+     * The first {@code window} rows in page order.
+     */
+    private List<Map<String, Object>> readRows(Path tableDirectory, ArchivedDataQuery query, boolean descending, int window,
+                                               Long lower, Long upper, ContinuationToken after,
+                                               Comparator<Map<String, Object>> order) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        for (Path dataFile : segments(tableDirectory)) {
+            SegmentHeader header = SegmentHeader.read(dataFile);
+            if (header.indexOf(Constants.CREATED_AT_COLUMN) < 0) {
+                continue;
+            }
+            for (IndexEntry entry : IndexEntry.readAll(indexFile(dataFile))) {
+                if (entry.timeOverlaps(lower, upper)) {
+                    blocks.add(new Block(dataFile, header, entry));
+                }
+            }
+        }
+        // in page order, once the page is full a block starting beyond its last row cannot contribute
+        blocks.sort(descending ? Comparator.comparingLong((Block block) -> block.entry.timeMax).reversed()
+                : Comparator.comparingLong((Block block) -> block.entry.timeMin));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<Path, MappedSegment> mapped = new HashMap<>();
+        try {
+            for (Block block : blocks) {
+                if (rows.size() >= window) {
+                    Object last = rows.get(window - 1).get(Constants.CREATED_AT_COLUMN);
+                    long lastTime = ColumnarSegmentFile.epochMicros(last);
+                    if (descending ? block.entry.timeMax < lastTime : block.entry.timeMin > lastTime) {
+                        break;
+                    }
+                }
+                MappedSegment segment = mapped.get(block.dataFile);
+                if (segment == null) {
+                    segment = new MappedSegment(block.dataFile);
+                    mapped.put(block.dataFile, segment);
+                }
+                readBlock(segment.block(block.entry), block, query, lower, upper, after, rows);
+                rows.sort(order);
+                if (rows.size() > window) {
+                    rows.subList(window, rows.size()).clear();
+                }
+            }
+        } finally {
+            for (MappedSegment segment : mapped.values()) {
+                segment.close();
+            }
+        }
+        return rows;
+    }
+
+    private static void readBlock(ByteBuffer bytes, Block block, ArchivedDataQuery query, Long lower, Long upper,
+                                  ContinuationToken after, List<Map<String, Object>> rows) throws IOException {
+        SegmentHeader header = block.header;
+        int timeColumn = header.indexOf(Constants.CREATED_AT_COLUMN);
+        byte[] content = new byte[bytes.remaining()];
+        bytes.get(content);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            for (int record = 0; record < block.entry.count; record++) {
+                in.readInt();
+                Object[] values = new Object[header.names.size()];
+                for (int column = 0; column < values.length; column++) {
+                    values[column] = ColumnarSegmentFile.readValue(in, header.kinds[column]);
+                }
+                if (values[timeColumn] == null) {
+                    continue;
+                }
+                long time = ColumnarSegmentFile.epochMicros(values[timeColumn]);
+                if ((lower == null || time >= lower) && (upper == null || time <= upper)) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int column = 0; column < values.length; column++) {
+                        row.put(header.names.get(column), values[column]);
+                    }
+                    if (query.matches(row) && (after == null || after.isFollowedBy(row))) {
+                        rows.add(query.project(row));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The table's directory, or {@code null} when nothing was archived into it yet.
+     */
+    private Path tableDirectory(String archiveTableName) {
+        if (directory == null || directory.isBlank()) {
+            return null;
+        }
+        Path tableDirectory = Paths.get(directory, archiveTableName);
+        return Files.isDirectory(tableDirectory) ? tableDirectory : null;
+    }
+
+    /**
+     * Runs {@code action} on the table's directory while its segments cannot change, or returns {@code null} when
+     * the table has none.
+     */
+    private <T> T shared(String archiveTableName, DirectoryAction<T> action) throws IOException {
+        Path tableDirectory = tableDirectory(archiveTableName);
+        if (tableDirectory == null) {
+            return null;
+        }
+        return fileLocks.shared(tableDirectory.resolve(LOCK_FILE), () -> action.run(tableDirectory));
+    }
+
+    private interface DirectoryAction<T> {
+        T run(Path tableDirectory) throws IOException;
+    }
+
+    private static List<Path> segments(Path tableDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(tableDirectory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(DATA_EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Continues the newest segment of the table if it has the same columns, otherwise starts the next one. Only
+     * called under the exclusive lock, so the end of the newest segment is the one its index records.
+     */
+    private SegmentWriter openWriter(Path tableDirectory, SegmentHeader header) throws IOException {
+        List<Path> existing = segments(tableDirectory);
+        int sequence = 1;
+        if (!existing.isEmpty()) {
+            Path newest = existing.get(existing.size() - 1);
+            SegmentHeader newestHeader = SegmentHeader.read(newest);
+            if (newestHeader.matches(header) && Files.size(newest) < segmentBytes) {
+                return SegmentWriter.reopen(newest, newestHeader);
+            }
+            String name = newest.getFileName().toString();
+            sequence = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - DATA_EXTENSION.length())) + 1;
+        }
+        return SegmentWriter.create(tableDirectory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, sequence, DATA_EXTENSION)), header);
+    }
+
+    private static Path indexFile(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return dataFile.resolveSibling(name.substring(0, name.length() - DATA_EXTENSION.length()) + INDEX_EXTENSION);
+    }
+
+    /**
+     * The columns stored in a segment, its primary key, which archived-data pages are ordered by, and the column its
+     * time index is built on.
+     */
+    private static final class SegmentHeader {
+        final List<String> names;
+        final byte[] kinds;
+        final List<String> keyColumns;
+        final String indexColumn;
+
+        SegmentHeader(List<String> names, byte[] kinds, List<String> keyColumns, String indexColumn) {
+            this.names = List.copyOf(names);
+            this.kinds = kinds;
+            this.keyColumns = List.copyOf(keyColumns);
+            this.indexColumn = indexColumn;
+        }
+
+        static SegmentHeader read(Path dataFile) throws IOException {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(dataFile))) {
+                int magic = in.readInt();
+                if (magic != MAGIC) {
+                    throw new IOException("Not an archive segment: " + dataFile);
+                }
+                String indexColumn = in.readUTF();
+                int columnCount = in.readInt();
+                List<String> names = new ArrayList<>(columnCount);
+                byte[] kinds = new byte[columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    names.add(in.readUTF());
+                    kinds[column] = in.readByte();
+                }
+                int keyCount = in.readInt();
+                List<String> keyColumns = new ArrayList<>(keyCount);
+                for (int key = 0; key < keyCount; key++) {
+                    keyColumns.add(in.readUTF());
+                }
+                return new SegmentHeader(names, kinds, keyColumns, indexColumn);
+            }
+        }
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeUTF(indexColumn);
+                out.writeInt(names.size());
+                for (int column = 0; column < names.size(); column++) {
+                    out.writeUTF(names.get(column));
+                    out.writeByte(kinds[column]);
+                }
+                out.writeInt(keyColumns.size());
+                for (String key : keyColumns) {
+                    out.writeUTF(key);
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Whether records of the other header can be appended here.
+         */
+        boolean matches(SegmentHeader other) {
+            return names.equals(other.names) && Arrays.equals(kinds, other.kinds) && keyColumns.equals(other.keyColumns)
+                    && indexColumn.equalsIgnoreCase(other.indexColumn);
+        }
+
+        int indexOf(String column) {
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * One entry of the sparse time index. A block without any value of the index column has {@code min > max}, one
+     * without any {@code created_at} has {@code timeMin > timeMax}.
+     */
+    private static final class IndexEntry {
+        final long offset;
+        final int length;
+        final int count;
+        final long min;
+        final long max;
+        final long timeMin;
+        final long timeMax;
+
+        IndexEntry(long offset, int length, int count, long min, long max, long timeMin, long timeMax) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.timeMin = timeMin;
+            this.timeMax = timeMax;
+        }
+
+        boolean timeOverlaps(Long lower, Long upper) {
+            return timeMin <= timeMax && (lower == null || timeMax >= lower) && (upper == null || timeMin <= upper);
+        }
+
+        long end() {
+            return offset + length;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(offset).putInt(length).putInt(count).putLong(min).putLong(max).putLong(timeMin).putLong(timeMax);
+        }
+
+        /**
+         * Reads the complete entries of an index file, ignoring a torn entry at its end.
+         */
+        static List<IndexEntry> readAll(Path indexFile) throws IOException {
+            if (!Files.exists(indexFile)) {
+                return List.of();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            List<IndexEntry> entries = new ArrayList<>();
+            while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+                entries.add(new IndexEntry(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong(),
+                        buffer.getLong(), buffer.getLong(), buffer.getLong()));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * A block of a segment that a read has to look at.
+     */
+    private static final class Block {
+        final Path dataFile;
+        final SegmentHeader header;
+        final IndexEntry entry;
+
+        Block(Path dataFile, SegmentHeader header, IndexEntry entry) {
+            this.dataFile = dataFile;
+            this.header = header;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Maps a segment for reading one window of at most {@link #MAPPING_BYTES} at a time, moving the window only when
+     * a block lies outside of it.
+     */
+    private static final class MappedSegment {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer mapping;
+        private long mappingStart;
+
+        MappedSegment(Path dataFile) throws IOException {
+            this.channel = FileChannel.open(dataFile, StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+
+        ByteBuffer block(IndexEntry entry) throws IOException {
+            if (entry.end() > size) {
+                throw new IOException("Block at " + entry.offset + " lies beyond the end of the segment");
+            }
+            if (mapping == null || entry.offset < mappingStart || entry.end() > mappingStart + mapping.capacity()) {
+                mappingStart = entry.offset;
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappingStart,
+                        Math.max(entry.length, Math.min(MAPPING_BYTES, size - mappingStart)));
+            }
+            int position = (int) (entry.offset - mappingStart);
+            return mapping.slice(position, entry.length);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends one batch to the newest segment of one table. Records are only indexed once they are forced to disk,
+     * so after a crash everything behind the last index entry is cut off when the segment is reopened.
+     */
+    private static final class SegmentWriter {
+        final Path dataFile;
+        final SegmentHeader header;
+        private final FileChannel data;
+        private final FileChannel index;
+        private final int indexColumn;
+        private final int timeColumn;
+        long size;
+
+        private SegmentWriter(Path dataFile, SegmentHeader header, long size) throws IOException {
+            this.dataFile = dataFile;
+            this.header = header;
+            this.data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.index = FileChannel.open(indexFile(dataFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.indexColumn = header.indexOf(header.indexColumn);
+            this.timeColumn = header.indexOf(Constants.CREATED_AT_COLUMN);
+            this.size = size;
+        }
+
+        static SegmentWriter create(Path dataFile, SegmentHeader header) throws IOException {
+            byte[] headerBytes = header.toBytes();
+            SegmentWriter writer = new SegmentWriter(dataFile, header, headerBytes.length);
+            writer.data.truncate(0);
+            writer.index.truncate(0);
+            writeFully(writer.data, ByteBuffer.wrap(headerBytes), 0);
+            writer.data.force(true);
+            return writer;
+        }
+
+        static SegmentWriter reopen(Path dataFile, SegmentHeader header) throws IOException {
+            List<IndexEntry> entries = IndexEntry.readAll(indexFile(dataFile));
+            long end = entries.isEmpty() ? header.toBytes().length : entries.get(entries.size() - 1).end();
+            SegmentWriter writer = new SegmentWriter(dataFile, header, end);
+            writer.data.truncate(end);
+            writer.index.truncate((long) entries.size() * INDEX_ENTRY_BYTES);
+            return writer;
+        }
+
+        void append(List<Object[]> records, int indexInterval) throws IOException {
+            ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            List<IndexEntry> entries = new ArrayList<>();
+            int blockStart = 0;
+            int blockCount = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long timeMin = Long.MAX_VALUE;
+            long timeMax = Long.MIN_VALUE;
+            for (int i = 0; i < records.size(); i++) {
+                Object[] values = records.get(i);
+                record.reset();
+                try (DataOutputStream out = new DataOutputStream(record)) {
+                    for (int column = 0; column < values.length; column++) {
+                        ColumnarSegmentFile.writeValue(out, header.kinds[column], values[column]);
+                    }
+                }
+                DataOutputStream out = new DataOutputStream(blocks);
+                out.writeInt(record.size());
+                record.writeTo(out);
+                if (values[indexColumn] != null) {
+                    long time = ColumnarSegmentFile.epochMicros(values[indexColumn]);
+                    min = Math.min(min, time);
+                    max = Math.max(max, time);
+                }
+                if (timeColumn >= 0 && values[timeColumn] != null) {
+                    long time = ColumnarSegmentFile.epochMicros(values[timeColumn]);
+                    timeMin = Math.min(timeMin, time);
+                    timeMax = Math.max(timeMax, time);
+                }
+                blockCount++;
+                if (blockCount == indexInterval || i == records.size() - 1) {
+                    entries.add(new IndexEntry(size + blockStart, blocks.size() - blockStart, blockCount, min, max, timeMin, timeMax));
+                    blockStart = blocks.size();
+                    blockCount = 0;
+                    min = Long.MAX_VALUE;
+                    max = Long.MIN_VALUE;
+                    timeMin = Long.MAX_VALUE;
+                    timeMax = Long.MIN_VALUE;
+                }
+            }
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            writeFully(data, ByteBuffer.wrap(blocks.toByteArray()), size);
+            data.force(false);
+            ByteBuffer indexBytes = ByteBuffer.allocate(entries.size() * INDEX_ENTRY_BYTES);
+            entries.forEach(entry -> entry.writeTo(indexBytes));
+            indexBytes.flip();
+            writeFully(index, indexBytes, index.size());
+            index.force(false);
+            size += blocks.size();
+        }
+
+        void close() throws IOException {
+            data.close();
+            index.close();
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,1056 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.appmodels.ArchivalCheckpoint;
+import com.archival.archivalservice.appmodels.ArchivalConfiguration;
+import com.archival.archivalservice.apprepository.ArchivalCriteriaRepository;
+import com.archival.archivalservice.dto.ArchivalTableProgress;
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.enums.ArchivalMode;
+import com.archival.archivalservice.enums.ArchivalTimeUnit;
+import com.archival.archivalservice.utils.ArchivalTimeUtils;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the eligible rows of a single table from the app DB into its archive table using the
+ * configured {@link ArchivalMode}.
+ */
+@Component
+public class TableArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableArchiver.class);
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    /**
+     * Batch connections a slice worker may hold at once: a pipelined or COPY reader keeps one for its whole range
+     * while its purges take another.
+     */
+    private static final int CONNECTIONS_PER_WORKER = 2;
+
+    @Autowired
+    private ArchivalPipeline archivalPipeline;
+
+    @Autowired
+    private PostgresCopyTransfer postgresCopyTransfer;
+
+    @Autowired
+    private ArchivalCheckpointService archivalCheckpointService;
+
+    @Autowired
+    private ArchivalCriteriaRepository archivalCriteriaRepository;
+
+    @Autowired
+    private TableSchemaCache tableSchemaCache;
+
+    @Autowired
+    private ArchivalThrottle archivalThrottle;
+
+    @Autowired
+    private PartitionArchiver partitionArchiver;
+
+    @Autowired
+    private ArchivePartitionManager archivePartitionManager;
+
+    @Autowired
+    private ArchivalSinks archivalSinks;
+
+    @Autowired
+    private ArchivalMetrics archivalMetrics;
+
+    @Autowired
+    private ArchivalRollups archivalRollups;
+
+    @Autowired
+    private ArchivalLeaseService archivalLeaseService;
+
+    @Autowired
+    private ArchivalPermits archivalPermits;
+
+    @Autowired
+    @Qualifier(Constants.APP_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource appDataSource;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Value("${archival.chunk.size:1000}")
+    private int defaultChunkSize;
+
+    @Value("${archival.delete.batch-size:500}")
+    private int defaultDeleteBatchSize;
+
+    @Value("${archival.server-side.auto-detect:true}")
+    private boolean serverSideAutoDetect;
+
+    @Value("${archival.server-side.archive-schema:}")
+    private String serverSideArchiveSchema;
+
+    @Value("${archival.backlog.exact-count:false}")
+    private boolean exactBacklogCount;
+
+    @Value("${archival.watermark.enabled:true}")
+    private boolean watermarkEnabled;
+
+    @Value("${archival.partitions.enabled:true}")
+    private boolean partitionsEnabled;
+
+    private final AtomicInteger sliceThreadCounter = new AtomicInteger();
+
+    private volatile Optional<String> sameServerArchiveSchema;
+
+    public long archiveTableData(ArchivalConfiguration criteria, String runId, ArchivalTableProgress progress) throws SQLException {
+        String tableName = criteria.getTableName();
+        String columnName = criteria.getArchivalColumnName();
+        LocalDateTime archiveThreshold = ArchivalTimeUtils.calculateThreshold(LocalDateTime.now(), criteria.getArchiveAfter(),
+                TimeUnit.valueOf(criteria.getArchivalTimeUnit().toString()));
+        LocalDateTime watermark = watermarkEnabled ? criteria.getLastArchivedThreshold() : null;
+        if (watermark != null && !watermark.isBefore(archiveThreshold)) {
+            logger.info("Table {} is already archived up to {}", tableName, watermark);
+            return 0;
+        }
+        ArchivalRange eligibleRange = new ArchivalRange(watermark, archiveThreshold);
+        ArchivalSink sink = archivalSinks.get(criteria.getArchivalSink());
+        AtomicLong backlog = archivalMetrics.backlog(tableName);
+        backlog.set(countEligible(tableName, columnName, eligibleRange));
+
+        long archived = 0;
+        if (sink.isArchiveTable()) {
+            prepareArchivePartitions(criteria, eligibleRange);
+            archived += archiveEligiblePartitions(criteria, archiveThreshold, progress);
+        }
+        archived += archiveEligibleRange(criteria, sink, eligibleRange, runId, progress);
+        archivalCriteriaRepository.updateLastArchivedThreshold(tableName, archiveThreshold);
+        backlog.set(0);
+        return archived;
+    }
+
+    /**
+     * The records the run is about to archive, for the backlog gauge. By default this is the planner's estimate,
+     * which costs no scan of the table; {@code archival.backlog.exact-count} counts them instead.
+     */
+    private long countEligible(String tableName, String columnName, ArchivalRange range) {
+        long start = System.nanoTime();
+        String filter = Constants.WHERE_CLAUSE + range.filter(columnName);
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+        long count = 0;
+        try {
+            if (exactBacklogCount) {
+                Long exact = appJdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName + filter, Long.class, range.params());
+                count = exact != null ? exact : 0;
+            } else {
+                List<String> plan = appJdbcTemplate.queryForList("EXPLAIN SELECT 1 FROM " + tableName + filter, String.class,
+                        range.params());
+                Matcher rows = PLAN_ROWS.matcher(plan.isEmpty() ? "" : plan.get(0));
+                count = rows.find() ? Long.parseLong(rows.group(1)) : 0;
+            }
+        } catch (DataAccessException e) {
+            // only the gauge depends on it
+            logger.debug("Unable to count the eligible records of table {}: {}", tableName, e.getMessage());
+        }
+        archivalMetrics.record(ArchivalMetrics.BACKLOG, tableName, start);
+        return count;
+    }
+
+    /**
+     * Makes sure a partitioned archive table has partitions for every row about to be archived into it.
+     */
+    private void prepareArchivePartitions(ArchivalConfiguration criteria, ArchivalRange eligibleRange) {
+        String archiveTableName = criteria.getTableName() + Constants.ARCHIVAL_TABLE_SUFFIX;
+        if (!archivePartitionManager.isPartitioned(archiveTableName, criteria.getArchivalColumnName())) {
+            return;
+        }
+        LocalDateTime oldest = findOldest(criteria.getTableName(), criteria.getArchivalColumnName(), eligibleRange);
+        ArchivalTimeUnit unit = criteria.getArchivePartitionUnit() != null ? criteria.getArchivePartitionUnit() : ArchivalTimeUnit.MONTH;
+        archivePartitionManager.ensurePartitions(archiveTableName, unit, oldest != null ? oldest : eligibleRange.upper, eligibleRange.upper);
+    }
+
+    private LocalDateTime findOldest(String tableName, String columnName, ArchivalRange range) {
+        String oldestQuery = "SELECT MIN(" + columnName + ") FROM " + tableName + Constants.WHERE_CLAUSE + range.filter(columnName);
+        return new JdbcTemplate(appDataSource).queryForObject(oldestQuery, LocalDateTime.class, range.params());
+    }
+
+    /**
+     * Moves the partitions of a range-partitioned table that lie entirely below the threshold as a whole, leaving
+     * only the partition that straddles the threshold to the row based modes.
+     */
+    private long archiveEligiblePartitions(ArchivalConfiguration criteria, LocalDateTime archiveThreshold, ArchivalTableProgress progress)
+            throws SQLException {
+        if (!partitionsEnabled) {
+            return 0;
+        }
+        String tableName = criteria.getTableName();
+        List<PartitionArchiver.Partition> partitions;
+        try {
+            partitions = partitionArchiver.findEligiblePartitions(tableName, criteria.getArchivalColumnName(), archiveThreshold);
+        } catch (DataAccessException e) {
+            logger.debug("Partition lookup is not available for table {}: {}", tableName, e.getMessage());
+            return 0;
+        }
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+
+        String archiveTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        Optional<String> archiveSchema = resolveSameServerArchiveSchema();
+        if (archiveSchema.isEmpty() && !postgresCopyTransfer.isSupported(appDataSource, archivalDataSource)) {
+            logger.warn("Partitions of table {} can only be moved with COPY or on the server, archiving them row by row", tableName);
+            return 0;
+        }
+        TableSchemaCache.TableSchema tableSchema = tableSchemaCache.get(tableName);
+        String columnList = String.join(Constants.COMMA_SEPARATOR + " ", tableSchema.columns);
+        List<String> rollupColumns = archivalRollups.resolveColumns(tableSchema, criteria.getRollupColumns());
+        long archived = 0;
+        for (PartitionArchiver.Partition partition : partitions) {
+            checkCancelled(progress);
+            checkLease(progress);
+            long start = System.nanoTime();
+            // the partition is detached before it is moved, so its rows are rolled up while it can still be read
+            List<Object[]> aggregates = archivalRollups.isEnabled()
+                    ? new JdbcTemplate(appDataSource).query(archivalRollups.aggregateQuery(partition.name, criteria.getArchivalColumnName(),
+                    rollupColumns) + " GROUP BY 1", recordMapper(ArchivalRollups.aggregateWidth(rollupColumns)))
+                    : List.of();
+            long moved = partitionArchiver.archivePartition(partition,
+                    archiveSchema.map(schema -> schema + "." + archiveTableName).orElse(archiveTableName), columnList,
+                    archiveSchema.isPresent());
+            archivalRollups.recordAggregates(tableName, rollupColumns, aggregates);
+            archivalMetrics.record(ArchivalMetrics.PARTITION, tableName, start);
+            archived(tableName, ArchivalMetrics.PARTITION, moved);
+            progress.scanned(moved);
+            progress.copied(moved);
+            progress.purged(moved);
+            archived += moved;
+        }
+        logger.info("Archived {} records from {} whole partitions of table: {}", archived, partitions.size(), tableName);
+        return archived;
+    }
+
+    /**
+     * Archives every row of {@code eligibleRange}. The lower bound is the threshold of the last successful run,
+     * so rows below it are not scanned again.
+     */
+    private long archiveEligibleRange(ArchivalConfiguration criteria, ArchivalSink sink, ArchivalRange eligibleRange, String runId,
+                                      ArchivalTableProgress progress) throws SQLException {
+        String tableName = criteria.getTableName();
+        String columnName = criteria.getArchivalColumnName();
+        LocalDateTime archiveThreshold = eligibleRange.upper;
+
+        long metadataStart = System.nanoTime();
+        TableSchemaCache.TableSchema schema = tableSchemaCache.get(tableName);
+        archivalMetrics.record(ArchivalMetrics.METADATA, tableName, metadataStart);
+        List<String> rollupColumns = archivalRollups.resolveColumns(schema, criteria.getRollupColumns());
+        ArchivalMode mode = criteria.getArchivalMode() != null ? criteria.getArchivalMode() : ArchivalMode.CHUNKED;
+        int chunkSize = criteria.getChunkSize() != null && criteria.getChunkSize() > 0 ? criteria.getChunkSize() : defaultChunkSize;
+        int deleteBatchSize = criteria.getDeleteBatchSize() != null && criteria.getDeleteBatchSize() > 0
+                ? criteria.getDeleteBatchSize() : defaultDeleteBatchSize;
+        if (schema.keyColumns.isEmpty() || mode == ArchivalMode.SINGLE_PASS) {
+            if (mode != ArchivalMode.SINGLE_PASS) {
+                logger.warn("Table {} has no primary key, falling back to single pass archival", tableName);
+            }
+            return archiveTableDataInSinglePass(schema.plan(tableName + Constants.ARCHIVAL_TABLE_SUFFIX, columnName, rollupColumns,
+                    ArchivalMode.SINGLE_PASS, chunkSize, deleteBatchSize, sink), eligibleRange, progress);
+        }
+        if (!sink.isArchiveTable() && (mode == ArchivalMode.COPY || mode == ArchivalMode.SERVER_SIDE)) {
+            logger.warn("{} archival writes into the archival DB directly, falling back to chunked archival into the {} sink for table {}",
+                    mode, sink.getName(), tableName);
+            mode = ArchivalMode.CHUNKED;
+        }
+        if (mode == ArchivalMode.COPY && !postgresCopyTransfer.isSupported(appDataSource, archivalDataSource)) {
+            logger.warn("COPY is not supported by the configured data sources, falling back to chunked archival for table {}", tableName);
+            mode = ArchivalMode.CHUNKED;
+        }
+        String archiveTableName = tableName + Constants.ARCHIVAL_TABLE_SUFFIX;
+        if (mode == ArchivalMode.SERVER_SIDE || (criteria.getArchivalMode() == null && serverSideAutoDetect && sink.isArchiveTable())) {
+            Optional<String> archiveSchema = resolveSameServerArchiveSchema();
+            if (archiveSchema.isPresent()) {
+                mode = ArchivalMode.SERVER_SIDE;
+                archiveTableName = archiveSchema.get() + "." + archiveTableName;
+            } else if (mode == ArchivalMode.SERVER_SIDE) {
+                logger.warn("App and archival data sources are not on the same database, falling back to chunked archival for table {}", tableName);
+                mode = ArchivalMode.CHUNKED;
+            }
+        }
+
+        TablePlan plan = schema.plan(archiveTableName, columnName, rollupColumns, mode, chunkSize, deleteBatchSize, sink);
+
+        int workerCount = criteria.getWorkerCount() != null ? criteria.getWorkerCount() : 1;
+        boolean sliced = workerCount > 1 && criteria.getSliceSize() != null && criteria.getSliceSize() > 0
+                && criteria.getSliceTimeUnit() != null;
+        ArchivalCheckpoint resumable = recoverInterruptedRuns(plan, sliced ? null : eligibleRange);
+        Supplier<ArchivalThrottle.ChunkThrottle> throttles = () -> archivalThrottle.start(criteria, chunkSize);
+        if (sliced) {
+            return archiveTableDataInSlices(plan, runId, eligibleRange, throttles, progress, workerCount, criteria.getSliceSize(),
+                    TimeUnit.valueOf(criteria.getSliceTimeUnit().toString()));
+        }
+
+        ArchivalCheckpoint checkpoint = resumable != null
+                ? archivalCheckpointService.resume(resumable, runId, archiveThreshold)
+                : archivalCheckpointService.start(tableName, runId, eligibleRange.lower, archiveThreshold);
+        long totalInserted = archiveRange(plan, eligibleRange, checkpoint, throttles.get(), progress);
+        if (totalInserted == 0) {
+            logger.info("No records to archive for table: {}", tableName);
+        }
+        return totalInserted;
+    }
+
+    /**
+     * Splits {@code [oldest eligible value, threshold)} of the archival column into disjoint time slices and
+     * archives them concurrently on up to {@code workerCount} workers, each with its own connections and transactions.
+     * Workers beyond the first need room in both batch pools and a free permit of both databases, otherwise the
+     * slices are shared among fewer workers.
+     */
+    private long archiveTableDataInSlices(TablePlan plan, String runId, ArchivalRange eligibleRange,
+                                          Supplier<ArchivalThrottle.ChunkThrottle> throttles, ArchivalTableProgress progress, int workerCount,
+                                          int sliceSize, TimeUnit sliceUnit) throws SQLException {
+        LocalDateTime oldest = findOldest(plan.tableName, plan.columnName, eligibleRange);
+        if (oldest == null) {
+            logger.info("No records to archive for table: {}", plan.tableName);
+            return 0;
+        }
+
+        List<ArchivalRange> slices = slices(eligibleRange, oldest, sliceSize, sliceUnit);
+        int wanted = Math.min(Math.min(workerCount, slices.size()), maxWorkers());
+        int extraWorkers = archivalPermits.tryAcquireWorkers(wanted - 1);
+        int workers = 1 + extraWorkers;
+        if (workers < workerCount && workers < slices.size()) {
+            logger.info("Archiving the {} slices of table {} on {} instead of {} workers, the batch pools or database limits leave no room for more",
+                    slices.size(), plan.tableName, workers, workerCount);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "archival-slice-" + sliceThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long totalInserted = 0;
+        int failedSlices = 0;
+        SQLException firstFailure = null;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (ArchivalRange slice : slices) {
+                futures.add(executor.submit(() -> archiveRange(plan, slice,
+                        archivalCheckpointService.start(plan.tableName, runId, slice.lower, slice.upper), throttles.get(), progress)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    totalInserted += futures.get(i).get();
+                } catch (ExecutionException e) {
+                    failedSlices++;
+                    logger.error("Failed to archive slice {} of table {}: {}", slices.get(i), plan.tableName, e.getCause().getMessage());
+                    if (firstFailure == null) {
+                        firstFailure = new SQLException("Failed to archive slice " + slices.get(i) + " of table " + plan.tableName, e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while archiving slices of table " + plan.tableName, e);
+        } finally {
+            executor.shutdownNow();
+            archivalPermits.releaseWorkers(extraWorkers);
+        }
+
+        logger.info("Archived {} records in {} slices on {} workers for table: {}", totalInserted, slices.size(), workers, plan.tableName);
+        if (firstFailure != null) {
+            logger.error("{} of {} slices failed for table: {}", failedSlices, slices.size(), plan.tableName);
+            throw firstFailure;
+        }
+        return totalInserted;
+    }
+
+    /**
+     * Cuts the eligible range into slices of {@code sliceSize} each, newest first, down to the one holding
+     * {@code oldest}.
+     */
+    static List<ArchivalRange> slices(ArchivalRange eligibleRange, LocalDateTime oldest, int sliceSize, TimeUnit sliceUnit) {
+        List<ArchivalRange> slices = new ArrayList<>();
+        LocalDateTime upper = eligibleRange.upper;
+        while (true) {
+            LocalDateTime lower = ArchivalTimeUtils.calculateThreshold(upper, sliceSize, sliceUnit);
+            if (!lower.isAfter(oldest)) {
+                // the oldest slice extends down to the watermark, or stays open-ended, so nothing below it is missed
+                slices.add(new ArchivalRange(eligibleRange.lower, upper));
+                return slices;
+            }
+            slices.add(new ArchivalRange(lower, upper));
+            upper = lower;
+        }
+    }
+
+    /**
+     * The number of slice workers both batch pools can serve at once.
+     */
+    private int maxWorkers() {
+        return Math.max(1, Math.min(maxPoolSize(appDataSource), maxPoolSize(archivalDataSource)) / CONNECTIONS_PER_WORKER);
+    }
+
+    private static int maxPoolSize(DataSource dataSource) {
+        return dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : Integer.MAX_VALUE;
+    }
+
+    private long archiveRange(TablePlan plan, ArchivalRange range, ArchivalCheckpoint checkpoint,
+                              ArchivalThrottle.ChunkThrottle throttle, ArchivalTableProgress progress) throws SQLException {
+        Object[] resumeKey = archivalCheckpointService.decodeKey(checkpoint.getCopiedKey());
+        long archived = switch (plan.mode) {
+            case PIPELINED -> archiveTableDataPipelined(plan, range, resumeKey, checkpoint, throttle, progress);
+            case COPY -> archiveTableDataWithCopy(plan, range, resumeKey, checkpoint, throttle, progress);
+            case SERVER_SIDE -> archiveTableDataOnServer(plan, range, throttle, progress);
+            default -> archiveTableDataInChunks(plan, range, resumeKey, checkpoint, throttle, progress);
+        };
+        archivalCheckpointService.complete(checkpoint);
+        return archived;
+    }
+
+    /**
+     * Finishes the work of runs that were interrupted on this table. Rows that were copied into the archive but
+     * possibly not purged are purged instead of being copied again, and for an unsliced run the most recent
+     * interrupted checkpoint is returned so the walk continues after its copied key.
+     */
+    ArchivalCheckpoint recoverInterruptedRuns(TablePlan plan, ArchivalRange unslicedRange) {
+        ArchivalCheckpoint resumable = null;
+        for (ArchivalCheckpoint checkpoint : archivalCheckpointService.findInterrupted(plan.tableName)) {
+            int purged = purgePendingRange(plan, checkpoint);
+            logger.info("Recovered interrupted checkpoint {} of table {}, purged {} already archived records",
+                    checkpoint.getId(), plan.tableName, purged);
+            if (unslicedRange != null && resumable == null && plan.mode != ArchivalMode.SERVER_SIDE
+                    && sameBound(checkpoint.getRangeLower(), unslicedRange.lower)) {
+                resumable = checkpoint;
+            } else {
+                archivalCheckpointService.markRecovered(checkpoint);
+            }
+        }
+        return resumable;
+    }
+
+    private static boolean sameBound(LocalDateTime first, LocalDateTime second) {
+        return first == null ? second == null : second != null && first.isEqual(second);
+    }
+
+    /**
+     * Deletes the rows an interrupted checkpoint copied after its committed key from the app DB. Those rows are
+     * already in the archive, but the run may have stopped before they were purged. Only rows known to be archived
+     * are deleted: the keys saved with the checkpoint, or for a COPY chunk the keys of its range found in the
+     * archive. A row inserted into the range after the copy stays in the app DB.
+     */
+    private int purgePendingRange(TablePlan plan, ArchivalCheckpoint checkpoint) {
+        Object[] copiedKey = archivalCheckpointService.decodeKey(checkpoint.getCopiedKey());
+        if (copiedKey == null || Objects.equals(checkpoint.getCopiedKey(), checkpoint.getCommittedKey())) {
+            return 0;
+        }
+        List<Object[]> archivedKeys = archivalCheckpointService.decodeKeys(checkpoint.getCopiedKeys());
+        if (archivedKeys == null) {
+            if (!plan.sink.isArchiveTable()) {
+                logger.warn("Copied rows of checkpoint {} of table {} cannot be looked up in the {} sink, leaving them unpurged",
+                        checkpoint.getId(), plan.tableName, plan.sink.getName());
+                return 0;
+            }
+            Object[] committedKey = archivalCheckpointService.decodeKey(checkpoint.getCommittedKey());
+            ArchivalRange range = new ArchivalRange(checkpoint.getRangeLower(), checkpoint.getRangeUpper());
+            StringBuilder keyQuery = new StringBuilder("SELECT " + plan.keyList() + " FROM " + plan.tableName
+                    + Constants.ARCHIVAL_TABLE_SUFFIX + Constants.WHERE_CLAUSE + range.filter(plan.columnName));
+            if (committedKey != null) {
+                keyQuery.append(Constants.AND_CLAUSE).append("(").append(plan.orderList).append(") > (").append(plan.keyPlaceholders).append(")");
+            }
+            keyQuery.append(Constants.AND_CLAUSE).append("(").append(plan.orderList).append(") <= (").append(plan.keyPlaceholders).append(")");
+            archivedKeys = new JdbcTemplate(archivalDataSource).query(keyQuery.toString(), recordMapper(plan.keyColumns.size()),
+                    queryParams(range.params(), committedKey != null ? committedKey : new Object[0], copiedKey));
+        }
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+        int deleted = 0;
+        for (int from = 0; from < archivedKeys.size(); from += plan.deleteBatchSize) {
+            List<Object[]> batch = archivedKeys.subList(from, Math.min(from + plan.deleteBatchSize, archivedKeys.size()));
+            deleted += appJdbcTemplate.update(plan.deleteByKeyQuery(batch.size()), queryParams(batch.toArray()));
+        }
+        return deleted;
+    }
+
+    private List<Object[]> primaryKeys(TablePlan plan, List<Object[]> records) {
+        return records.stream().map(record -> extractKey(record, plan.keyIndexes)).toList();
+    }
+
+    private long archiveTableDataInSinglePass(TablePlan plan, ArchivalRange range, ArchivalTableProgress progress) {
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+
+        String selectQuery = "SELECT " + plan.columnList + " FROM " + plan.tableName + Constants.WHERE_CLAUSE + range.filter(plan.columnName);
+        long selectStart = System.nanoTime();
+        List<Object[]> recordsToArchive = appJdbcTemplate.query(selectQuery, recordMapper(plan.columns.size()), range.params());
+        archivalMetrics.record(ArchivalMetrics.SELECT, plan.tableName, selectStart);
+        archivalMetrics.records(ArchivalMetrics.SELECT, plan.tableName, recordsToArchive.size());
+
+        if (recordsToArchive.isEmpty()) {
+            logger.info("No records to archive for table: {}", plan.tableName);
+            return 0;
+        }
+
+        progress.scanned(recordsToArchive.size());
+        int totalInserted = insertIntoArchivalDB(plan, recordsToArchive);
+        progress.copied(totalInserted);
+        logger.info("Inserted {} records into archival DB for table: {}", totalInserted, plan.tableName);
+
+        int rowsDeleted;
+        if (plan.keyColumns.isEmpty()) {
+            String deleteQuery = "DELETE FROM " + plan.tableName + Constants.WHERE_CLAUSE + range.filter(plan.columnName);
+            long purgeStart = System.nanoTime();
+            rowsDeleted = appJdbcTemplate.update(deleteQuery, range.params());
+            archivalMetrics.record(ArchivalMetrics.PURGE, plan.tableName, purgeStart);
+            archivalMetrics.records(ArchivalMetrics.PURGE, plan.tableName, rowsDeleted);
+            if (totalInserted != rowsDeleted) {
+                logger.warn("Mismatch between inserted ({}) and deleted ({}) records for table: {}", totalInserted, rowsDeleted, plan.tableName);
+            }
+        } else {
+            rowsDeleted = purgeArchivedRows(plan, recordsToArchive);
+        }
+        progress.purged(rowsDeleted);
+        logger.info("Deleted {} records from app DB for table: {}", rowsDeleted, plan.tableName);
+        return totalInserted;
+    }
+
+    /**
+     * Walks the rows of the range in keyset order of (archival column, primary key) and copies and purges
+     * one chunk at a time, so only a single chunk is ever held in memory.
+     */
+    private long archiveTableDataInChunks(TablePlan plan, ArchivalRange range, Object[] resumeKey, ArchivalCheckpoint checkpoint,
+                                          ArchivalThrottle.ChunkThrottle throttle, ArchivalTableProgress progress) {
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+
+        String baseQuery = "SELECT " + plan.columnList + " FROM " + plan.tableName + Constants.WHERE_CLAUSE + range.filter(plan.columnName);
+        String orderAndLimit = Constants.ORDER_BY + plan.orderList + Constants.LIMIT_CLAUSE;
+        String firstChunkQuery = baseQuery + orderAndLimit;
+        String nextChunkQuery = baseQuery + Constants.AND_CLAUSE + "(" + plan.orderList + ") > (" + plan.keyPlaceholders + ")" + orderAndLimit;
+
+        long totalInserted = 0;
+        long totalDeleted = 0;
+        Object[] lastKey = resumeKey;
+        while (true) {
+            checkCancelled(progress);
+            checkLease(progress);
+            long chunkStart = System.nanoTime();
+            int chunkSize = throttle.chunkSize();
+            List<Object[]> chunk;
+            if (lastKey == null) {
+                chunk = appJdbcTemplate.query(firstChunkQuery, recordMapper(plan.columns.size()), queryParams(range.params(), chunkSize));
+            } else {
+                chunk = appJdbcTemplate.query(nextChunkQuery, recordMapper(plan.columns.size()),
+                        queryParams(range.params(), lastKey, chunkSize));
+            }
+            archivalMetrics.record(ArchivalMetrics.SELECT, plan.tableName, chunkStart);
+            archivalMetrics.records(ArchivalMetrics.SELECT, plan.tableName, chunk.size());
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            lastKey = extractKey(chunk.get(chunk.size() - 1), plan.orderIndexes);
+
+            progress.scanned(chunk.size());
+            int inserted = insertIntoArchivalDB(plan, chunk);
+            archivalCheckpointService.recordCopied(checkpoint, lastKey, inserted, primaryKeys(plan, chunk));
+            progress.copied(inserted);
+            int deleted = purgeArchivedRows(plan, chunk);
+            progress.purged(deleted);
+            totalDeleted += deleted;
+            totalInserted += inserted;
+
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            throttle.chunkDone(chunk.size(), System.nanoTime() - chunkStart);
+        }
+
+        if (totalInserted > 0) {
+            logger.info("Inserted {} and deleted {} records in chunks of {} for table: {} {}", totalInserted, totalDeleted,
+                    plan.chunkSize, plan.tableName, range);
+        }
+        return totalInserted;
+    }
+
+    /**
+     * Streams the rows of the range through {@link ArchivalPipeline} so the source cursor keeps reading while
+     * the previous batch is being inserted into the archival DB and purged from the app DB.
+     */
+    private long archiveTableDataPipelined(TablePlan plan, ArchivalRange range, Object[] resumeKey, ArchivalCheckpoint checkpoint,
+                                           ArchivalThrottle.ChunkThrottle throttle, ArchivalTableProgress progress) throws SQLException {
+        String selectQuery = "SELECT " + plan.columnList + " FROM " + plan.tableName + Constants.WHERE_CLAUSE + range.filter(plan.columnName)
+                + (resumeKey != null ? Constants.AND_CLAUSE + "(" + plan.orderList + ") > (" + plan.keyPlaceholders + ")" : "")
+                + Constants.ORDER_BY + plan.orderList;
+        Object[] params = resumeKey != null ? queryParams(range.params(), resumeKey) : range.params();
+
+        long[] totalDeleted = new long[1];
+        // the pipeline batch size is fixed once the cursor is open, so only the pauses of the throttle apply here
+        long totalInserted = archivalPipeline.transfer(appDataSource, selectQuery, params,
+                plan.columns.size(), plan.chunkSize, batch -> {
+                    checkCancelled(progress);
+                    checkLease(progress);
+                    long batchStart = System.nanoTime();
+                    // the cursor reads ahead in the pipeline, so only the records of the select are counted here
+                    archivalMetrics.records(ArchivalMetrics.SELECT, plan.tableName, batch.size());
+                    progress.scanned(batch.size());
+                    int inserted = insertIntoArchivalDB(plan, batch);
+                    archivalCheckpointService.recordCopied(checkpoint, extractKey(batch.get(batch.size() - 1), plan.orderIndexes), inserted,
+                            primaryKeys(plan, batch));
+                    progress.copied(inserted);
+                    int deleted = purgeArchivedRows(plan, batch);
+                    progress.purged(deleted);
+                    totalDeleted[0] += deleted;
+                    throttle.chunkDone(batch.size(), System.nanoTime() - batchStart);
+                    return inserted;
+                });
+
+        if (totalInserted > 0) {
+            logger.info("Inserted {} and deleted {} records in pipelined batches of {} for table: {} {}", totalInserted,
+                    totalDeleted[0], plan.chunkSize, plan.tableName, range);
+        }
+        return totalInserted;
+    }
+
+    /**
+     * Moves each chunk with the PostgreSQL binary COPY protocol. The chunk is bounded by a keyset range that is
+     * copied out and deleted inside one repeatable read transaction on the app DB, so exactly the copied rows
+     * are purged and the app transaction only commits after the archive COPY has been committed.
+     */
+    private long archiveTableDataWithCopy(TablePlan plan, ArchivalRange range, Object[] resumeKey, ArchivalCheckpoint checkpoint,
+                                          ArchivalThrottle.ChunkThrottle throttle, ArchivalTableProgress progress) throws SQLException {
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+        String boundQuery = "SELECT " + plan.orderList + " FROM " + plan.tableName + Constants.WHERE_CLAUSE + range.filter(plan.columnName);
+        String afterKey = Constants.AND_CLAUSE + "(" + plan.orderList + ") > (" + plan.keyPlaceholders + ")";
+        String chunkBound = Constants.ORDER_BY + plan.orderList + " LIMIT 1 OFFSET ?";
+        String lastBound = Constants.ORDER_BY + plan.orderListDescending + " LIMIT 1";
+
+        long totalInserted = 0;
+        long totalDeleted = 0;
+        Object[] lowerKey = resumeKey;
+        boolean lastChunk = false;
+        while (!lastChunk) {
+            checkCancelled(progress);
+            checkLease(progress);
+            long chunkStart = System.nanoTime();
+            Object[] lowerParams = lowerKey != null ? lowerKey : new Object[0];
+            String lowerFilter = lowerKey != null ? afterKey : "";
+            List<Object[]> bounds = appJdbcTemplate.query(boundQuery + lowerFilter + chunkBound, recordMapper(plan.orderColumns.size()),
+                    queryParams(range.params(), lowerParams, throttle.chunkSize() - 1));
+            if (bounds.isEmpty()) {
+                // fewer than a full chunk left, bound the final chunk by the last remaining key
+                bounds = appJdbcTemplate.query(boundQuery + lowerFilter + lastBound, recordMapper(plan.orderColumns.size()),
+                        queryParams(range.params(), lowerParams));
+                lastChunk = true;
+                if (bounds.isEmpty()) {
+                    break;
+                }
+            }
+            Object[] upperKey = bounds.get(0);
+
+            StringBuilder copyFilter = new StringBuilder(range.literalFilter(plan.columnName, postgresCopyTransfer::toLiteral));
+            StringBuilder deleteFilter = new StringBuilder(range.filter(plan.columnName));
+            if (lowerKey != null) {
+                copyFilter.append(Constants.AND_CLAUSE).append("(").append(plan.orderList).append(") > (").append(toLiterals(lowerKey)).append(")");
+                deleteFilter.append(afterKey);
+            }
+            copyFilter.append(Constants.AND_CLAUSE).append("(").append(plan.orderList).append(") <= (").append(toLiterals(upperKey)).append(")");
+            deleteFilter.append(Constants.AND_CLAUSE).append("(").append(plan.orderList).append(") <= (").append(plan.keyPlaceholders).append(")");
+            String selectQuery = "SELECT " + plan.columnList + " FROM " + plan.tableName + Constants.WHERE_CLAUSE + copyFilter;
+            String deleteQuery = "DELETE FROM " + plan.tableName + Constants.WHERE_CLAUSE + deleteFilter;
+
+            long copied;
+            try (Connection appConn = appDataSource.getConnection();
+                 Connection archivalConn = archivalDataSource.getConnection()) {
+                boolean autoCommit = appConn.getAutoCommit();
+                int isolation = appConn.getTransactionIsolation();
+                appConn.setAutoCommit(false);
+                appConn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                try {
+                    long copyStart = System.nanoTime();
+                    long inserted = postgresCopyTransfer.copy(appConn, selectQuery, archivalConn, plan.archiveTableName, plan.columnList);
+                    archivalMetrics.record(ArchivalMetrics.COPY, plan.tableName, copyStart);
+                    // the copied rows are only known to the database, recovery looks them up in the archive
+                    archivalCheckpointService.recordCopied(checkpoint, upperKey, inserted, null);
+                    // same snapshot as the COPY, so exactly the copied rows are rolled up
+                    List<Object[]> aggregates = archivalRollups.isEnabled()
+                            ? aggregate(appConn, archivalRollups.aggregateQuery(plan.tableName, plan.columnName, plan.rollupColumns)
+                            + Constants.WHERE_CLAUSE + deleteFilter + " GROUP BY 1", queryParams(range.params(), lowerParams, upperKey), plan)
+                            : List.of();
+                    int deleted;
+                    try (PreparedStatement stmt = appConn.prepareStatement(deleteQuery)) {
+                        new ArgumentPreparedStatementSetter(queryParams(range.params(), lowerParams, upperKey)).setValues(stmt);
+                        deleted = stmt.executeUpdate();
+                    }
+                    appConn.commit();
+                    if (inserted != deleted) {
+                        logger.warn("Mismatch between copied ({}) and deleted ({}) records in chunk for table: {}", inserted, deleted, plan.tableName);
+                    }
+                    copied = inserted;
+                    archivalRollups.recordAggregates(plan.tableName, plan.rollupColumns, aggregates);
+                    archived(plan.tableName, ArchivalMetrics.COPY, inserted);
+                    archivalMetrics.batch(plan.tableName, (int) inserted);
+                    totalInserted += inserted;
+                    totalDeleted += deleted;
+                    progress.scanned(inserted);
+                    progress.copied(inserted);
+                    progress.purged(deleted);
+                    logger.debug("Copied chunk of {} records for table: {}", inserted, plan.tableName);
+                } catch (SQLException | RuntimeException e) {
+                    appConn.rollback();
+                    throw e;
+                } finally {
+                    appConn.setTransactionIsolation(isolation);
+                    appConn.setAutoCommit(autoCommit);
+                }
+            }
+            lowerKey = upperKey;
+            if (!lastChunk) {
+                throttle.chunkDone((int) copied, System.nanoTime() - chunkStart);
+            }
+        }
+
+        if (totalInserted > 0) {
+            logger.info("Copied {} and deleted {} records in chunks of {} for table: {} {}", totalInserted, totalDeleted,
+                    plan.chunkSize, plan.tableName, range);
+        }
+        return totalInserted;
+    }
+
+    /**
+     * Moves each chunk entirely on the database server with one data-modifying CTE, so no row data crosses the
+     * network or the JVM heap. Only possible when the archive table is reachable from the app DB connection.
+     */
+    private long archiveTableDataOnServer(TablePlan plan, ArchivalRange range, ArchivalThrottle.ChunkThrottle throttle,
+                                          ArchivalTableProgress progress) {
+        String movedRows = "WITH moved AS (DELETE FROM " + plan.tableName + Constants.WHERE_CLAUSE + plan.keyTuple() + " IN ("
+                + "SELECT " + plan.keyList() + " FROM " + plan.tableName + Constants.WHERE_CLAUSE + range.filter(plan.columnName)
+                + Constants.ORDER_BY + plan.orderList + Constants.LIMIT_CLAUSE + ") RETURNING " + plan.columnList + ")";
+        String insertMoved = "INSERT INTO " + plan.archiveTableName + " (" + plan.columnList + ") SELECT " + plan.columnList + " FROM moved";
+        String moveQuery = movedRows + " " + insertMoved;
+        // the rows are rolled up by the same statement, which reports the moved rows as the counts of their buckets
+        String moveAndAggregateQuery = movedRows + ", archived AS (" + insertMoved + ") "
+                + archivalRollups.aggregateQuery("moved", plan.columnName, plan.rollupColumns) + " GROUP BY 1";
+
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+        long totalMoved = 0;
+        while (true) {
+            checkCancelled(progress);
+            checkLease(progress);
+            long chunkStart = System.nanoTime();
+            int chunkSize = throttle.chunkSize();
+            int moved;
+            if (archivalRollups.isEnabled()) {
+                List<Object[]> aggregates = appJdbcTemplate.query(moveAndAggregateQuery,
+                        recordMapper(ArchivalRollups.aggregateWidth(plan.rollupColumns)), queryParams(range.params(), chunkSize));
+                moved = aggregates.stream().mapToInt(aggregate -> ((Number) aggregate[1]).intValue()).sum();
+                archivalRollups.recordAggregates(plan.tableName, plan.rollupColumns, aggregates);
+            } else {
+                moved = appJdbcTemplate.update(moveQuery, queryParams(range.params(), chunkSize));
+            }
+            archivalMetrics.record(ArchivalMetrics.MOVE, plan.tableName, chunkStart);
+            archived(plan.tableName, ArchivalMetrics.MOVE, moved);
+            archivalMetrics.batch(plan.tableName, moved);
+            totalMoved += moved;
+            progress.scanned(moved);
+            progress.copied(moved);
+            progress.purged(moved);
+            logger.debug("Moved chunk of {} records on server for table: {}", moved, plan.tableName);
+            if (moved < chunkSize) {
+                break;
+            }
+            throttle.chunkDone(moved, System.nanoTime() - chunkStart);
+        }
+
+        if (totalMoved > 0) {
+            logger.info("Moved {} records on server in chunks of {} into {} {}", totalMoved, plan.chunkSize, plan.archiveTableName, range);
+        }
+        return totalMoved;
+    }
+
+    /**
+     * Returns the schema holding the archive tables when they can be reached from the app DB connection: either
+     * the configured {@code archival.server-side.archive-schema}, or the current schema of the archival data
+     * source when both connections report the same database, server address and port. Connections over a Unix
+     * socket report no address and are never taken for the same server.
+     */
+    private Optional<String> resolveSameServerArchiveSchema() {
+        Optional<String> resolved = sameServerArchiveSchema;
+        if (resolved != null) {
+            return resolved;
+        }
+        if (!serverSideArchiveSchema.isBlank()) {
+            resolved = Optional.of(serverSideArchiveSchema.trim());
+        } else {
+            try (Connection appConn = appDataSource.getConnection();
+                 Connection archivalConn = archivalDataSource.getConnection()) {
+                // URLs differ in host aliases and parameters, and equal URLs may reach different servers behind a proxy
+                List<String> appDatabase = databaseLocation(appConn);
+                List<String> archivalDatabase = databaseLocation(archivalConn);
+                resolved = !appDatabase.contains(null) && appDatabase.equals(archivalDatabase) && archivalConn.getSchema() != null
+                        ? Optional.of(archivalConn.getSchema()) : Optional.empty();
+            } catch (SQLException e) {
+                logger.warn("Unable to compare app and archival data sources: {}", e.getMessage());
+                return Optional.empty();
+            }
+        }
+        resolved.ifPresent(schema -> logger.info("Archive tables are reachable from the app DB in schema {}, using server side archival", schema));
+        sameServerArchiveSchema = resolved;
+        return resolved;
+    }
+
+    private List<String> databaseLocation(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(Constants.DATABASE_LOCATION_QUERY);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return Arrays.asList(rs.getString(1), rs.getString(2), rs.getString(3));
+        }
+    }
+
+    private String toLiterals(Object[] values) {
+        return Arrays.stream(values).map(postgresCopyTransfer::toLiteral).collect(Collectors.joining(Constants.COMMA_SEPARATOR + " "));
+    }
+
+    /**
+     * Deletes exactly the archived rows from the app DB by primary key, {@code deleteBatchSize} keys per statement.
+     * Each statement commits on its own so row locks are held only for one batch at a time.
+     */
+    private int purgeArchivedRows(TablePlan plan, List<Object[]> records) {
+        JdbcTemplate appJdbcTemplate = new JdbcTemplate(appDataSource);
+        long start = System.nanoTime();
+        int deleted = 0;
+        for (int from = 0; from < records.size(); from += plan.deleteBatchSize) {
+            List<Object[]> batch = records.subList(from, Math.min(from + plan.deleteBatchSize, records.size()));
+            Object[] keys = batch.stream().map(record -> extractKey(record, plan.keyIndexes)).toArray();
+            deleted += appJdbcTemplate.update(plan.deleteByKeyQuery(batch.size()), queryParams(keys));
+        }
+        archivalMetrics.record(ArchivalMetrics.PURGE, plan.tableName, start);
+        archivalMetrics.records(ArchivalMetrics.PURGE, plan.tableName, deleted);
+        if (deleted != records.size()) {
+            logger.debug("{} of {} archived records were already gone from table: {}", records.size() - deleted, records.size(), plan.tableName);
+        }
+        logger.debug("Archived chunk of {} records for table: {}", records.size(), plan.tableName);
+        return deleted;
+    }
+
+    private int insertIntoArchivalDB(TablePlan plan, List<Object[]> records) {
+        long start = System.nanoTime();
+        int inserted = plan.sink.write(plan.schema, plan.columnName, records);
+        archivalMetrics.record(ArchivalMetrics.INSERT, plan.tableName, start);
+        archivalRollups.record(plan, records);
+        archived(plan.tableName, ArchivalMetrics.INSERT, inserted);
+        archivalMetrics.batch(plan.tableName, records.size());
+        archivalMetrics.bytes(plan.tableName, records);
+        return inserted;
+    }
+
+    private List<Object[]> aggregate(Connection conn, String aggregateQuery, Object[] params, TablePlan plan) throws SQLException {
+        List<Object[]> aggregates = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(aggregateQuery)) {
+            new ArgumentPreparedStatementSetter(params).setValues(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                RowMapper<Object[]> mapper = recordMapper(ArchivalRollups.aggregateWidth(plan.rollupColumns));
+                while (rs.next()) {
+                    aggregates.add(mapper.mapRow(rs, aggregates.size()));
+                }
+            }
+        }
+        return aggregates;
+    }
+
+    private void archived(String tableName, String phase, long records) {
+        archivalMetrics.records(phase, tableName, records);
+        archivalMetrics.backlog(tableName).accumulateAndGet(records, (backlog, archived) -> Math.max(0, backlog - archived));
+    }
+
+    /**
+     * Stops the table between chunks once its job is cancelled. Everything up to the last chunk is archived and
+     * checkpointed, so a later run continues from there.
+     */
+    private static void checkCancelled(ArchivalTableProgress progress) {
+        if (progress.isCancelled()) {
+            throw new CancellationException("Archival of table " + progress.getTableName() + " was cancelled");
+        }
+    }
+
+    /**
+     * Stops the table between chunks once its lease was lost, another instance may already be archiving it. The
+     * chunks committed so far stay checkpointed.
+     */
+    private void checkLease(ArchivalTableProgress progress) {
+        if (archivalLeaseService.isLost(progress.getTableName())) {
+            throw new IllegalStateException("Lost the lease of table " + progress.getTableName() + ", stopped archiving it");
+        }
+    }
+
+    private RowMapper<Object[]> recordMapper(int columnCount) {
+        return (rs, rowNum) -> {
+            Object[] values = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            return values;
+        };
+    }
+
+    private Object[] extractKey(Object[] record, int[] keyIndexes) {
+        Object[] key = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            key[i] = record[keyIndexes[i]];
+        }
+        return key;
+    }
+
+    private Object[] queryParams(Object... values) {
+        List<Object> params = new ArrayList<>();
+        for (Object value : values) {
+            if (value instanceof Object[] nested) {
+                params.addAll(Arrays.asList(nested));
+            } else {
+                params.add(value);
+            }
+        }
+        return params.toArray();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(Constants.COMMA_SEPARATOR + " ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * The columns and SQL fragments shared by every chunk of one table archival.
+     */
+    static final class TablePlan {
+        final TableSchemaCache.TableSchema schema;
+        final String tableName;
+        final String archiveTableName;
+        final String columnName;
+        final List<String> columns;
+        final String columnList;
+        final List<String> keyColumns;
+        final int[] keyIndexes;
+        final List<String> orderColumns;
+        final int[] orderIndexes;
+        final String orderList;
+        final String orderListDescending;
+        final String keyPlaceholders;
+        final int columnIndex;
+        final List<String> rollupColumns;
+        final int[] rollupIndexes;
+        final ArchivalMode mode;
+        final int chunkSize;
+        final int deleteBatchSize;
+        final ArchivalSink sink;
+        private final Map<Integer, String> deleteByKeyQueries = new ConcurrentHashMap<>();
+
+        TablePlan(TableSchemaCache.TableSchema schema, String archiveTableName, String columnName, List<String> rollupColumns,
+                  ArchivalMode mode, int chunkSize, int deleteBatchSize, ArchivalSink sink) {
+            this.schema = schema;
+            this.tableName = schema.tableName;
+            this.archiveTableName = archiveTableName;
+            this.columnName = columnName;
+            this.columns = schema.columns;
+            this.columnList = String.join(Constants.COMMA_SEPARATOR + " ", columns);
+            this.keyColumns = schema.keyColumns;
+            this.keyIndexes = keyColumns.stream().mapToInt(this::indexOfColumn).toArray();
+            this.orderColumns = new ArrayList<>();
+            this.orderColumns.add(columnName);
+            keyColumns.stream().filter(key -> !key.equalsIgnoreCase(columnName)).forEach(this.orderColumns::add);
+            this.orderIndexes = orderColumns.stream().mapToInt(this::indexOfColumn).toArray();
+            this.orderList = String.join(Constants.COMMA_SEPARATOR + " ", orderColumns);
+            this.orderListDescending = orderColumns.stream().map(column -> column + " " + Constants.DESC_SORT_UPPER)
+                    .collect(Collectors.joining(Constants.COMMA_SEPARATOR + " "));
+            this.keyPlaceholders = placeholders(orderColumns.size());
+            this.columnIndex = orderIndexes[0];
+            this.rollupColumns = List.copyOf(rollupColumns);
+            this.rollupIndexes = rollupColumns.stream().mapToInt(this::indexOfColumn).toArray();
+            this.mode = mode;
+            this.chunkSize = chunkSize;
+            this.deleteBatchSize = deleteBatchSize;
+            this.sink = sink;
+        }
+
+        String keyList() {
+            return String.join(Constants.COMMA_SEPARATOR + " ", keyColumns);
+        }
+
+        String keyTuple() {
+            return keyColumns.size() == 1 ? keyList() : "(" + keyList() + ")";
+        }
+
+        String deleteByKeyQuery(int keyCount) {
+            return deleteByKeyQueries.computeIfAbsent(keyCount, count -> {
+                String keyPlaceholder = keyColumns.size() == 1 ? "?" : "(" + placeholders(keyColumns.size()) + ")";
+                return "DELETE FROM " + tableName + Constants.WHERE_CLAUSE + keyTuple() + " IN ("
+                        + String.join(Constants.COMMA_SEPARATOR + " ", Collections.nCopies(count, keyPlaceholder)) + ")";
+            });
+        }
+
+        private int indexOfColumn(String column) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException(Constants.COLUMN_NOT_FOUND_MESSAGE + column);
+        }
+    }
+
+    /**
+     * A half-open {@code [lower, upper)} range of the archival column. A missing lower bound covers
+     * everything below {@code upper}.
+     */
+    static final class ArchivalRange {
+        final LocalDateTime lower;
+        final LocalDateTime upper;
+
+        ArchivalRange(LocalDateTime lower, LocalDateTime upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        String filter(String columnName) {
+            if (lower == null) {
+                return columnName + " < ?";
+            }
+            return columnName + " >= ?" + Constants.AND_CLAUSE + columnName + " < ?";
+        }
+
+        String literalFilter(String columnName, Function<Object, String> toLiteral) {
+            if (lower == null) {
+                return columnName + " < " + toLiteral.apply(upper);
+            }
+            return columnName + " >= " + toLiteral.apply(lower) + Constants.AND_CLAUSE + columnName + " < " + toLiteral.apply(upper);
+        }
+
+        Object[] params() {
+            return lower == null ? new Object[]{upper} : new Object[]{lower, upper};
+        }
+
+        @Override
+        public String toString() {
+            return "[" + (lower != null ? lower : "") + ", " + upper + ")";
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.Constants;
+import com.archival.archivalservice.enums.ArchivalMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the column list, JDBC types and primary key of each archived table, together with the SQL built from
+ * them, so frequent runs do not repeat the {@link java.sql.DatabaseMetaData} round trips. Entries are dropped
+ * when a table's configuration changes and revalidated with a single zero-row query once they get old. The
+ * {@code _archive} tables that archived data is read from are cached separately, from the interactive pool of the
+ * archival DB, so reads never depend on the app DB or on the source table still existing.
+ */
+@Component
+public class TableSchemaCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableSchemaCache.class);
+
+    @Autowired
+    @Qualifier(Constants.APP_BATCH_DATA_SOURCE_QUALIFIER)
+    private DataSource appDataSource;
+
+    @Autowired
+    @Qualifier(Constants.ARCHIVAL_DATA_SOURCE_QUALIFIER)
+    private DataSource archivalDataSource;
+
+    @Value("${archival.schema-cache.revalidate-seconds:300}")
+    private long revalidateSeconds;
+
+    private final ConcurrentMap<String, TableSchema> schemas = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, TableSchema> archiveSchemas = new ConcurrentHashMap<>();
+
+    public TableSchema get(String tableName) throws SQLException {
+        return get(schemas, appDataSource, tableName);
+    }
+
+    /**
+     * The schema of an {@code _archive} table in the archival DB.
+     */
+    public TableSchema getArchive(String archiveTableName) throws SQLException {
+        return get(archiveSchemas, archivalDataSource, archiveTableName);
+    }
+
+    public void invalidate(String tableName) {
+        if (schemas.remove(tableName) != null) {
+            logger.debug("Invalidated cached schema of table {}", tableName);
+        }
+        archiveSchemas.remove(tableName + Constants.ARCHIVAL_TABLE_SUFFIX);
+    }
+
+    private TableSchema get(ConcurrentMap<String, TableSchema> cache, DataSource dataSource, String tableName) throws SQLException {
+        TableSchema schema = cache.get(tableName);
+        if (schema != null) {
+            if (System.nanoTime() - schema.validatedAt < TimeUnit.SECONDS.toNanos(revalidateSeconds)) {
+                return schema;
+            }
+            if (matchesTable(dataSource, schema)) {
+                schema.validatedAt = System.nanoTime();
+                return schema;
+            }
+            logger.info("Columns of table {} changed, reloading its schema", tableName);
+        }
+        schema = load(dataSource, tableName);
+        cache.put(tableName, schema);
+        return schema;
+    }
+
+    private TableSchema load(DataSource dataSource, String tableName) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            List<String> columns = new ArrayList<>();
+            List<Integer> columnTypes = new ArrayList<>();
+            try (ResultSet rs = conn.getMetaData().getColumns(null, null, tableName, null)) {
+                while (rs.next()) {
+                    columns.add(rs.getString(Constants.COLUMN_NAME_FIELD));
+                    columnTypes.add(rs.getInt(Constants.DATA_TYPE_FIELD));
+                }
+            }
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException(Constants.NO_COLUMNS_FOUND_MESSAGE + tableName);
+            }
+            SortedMap<Short, String> keyColumns = new TreeMap<>();
+            try (ResultSet rs = conn.getMetaData().getPrimaryKeys(null, null, tableName)) {
+                while (rs.next()) {
+                    keyColumns.put(rs.getShort(Constants.KEY_SEQ_FIELD), rs.getString(Constants.COLUMN_NAME_FIELD));
+                }
+            }
+            return new TableSchema(tableName, columns, columnTypes.stream().mapToInt(Integer::intValue).toArray(),
+                    new ArrayList<>(keyColumns.values()));
+        }
+    }
+
+    /**
+     * Checks the cached columns against the live table with a query that returns no rows.
+     */
+    private boolean matchesTable(DataSource dataSource, TableSchema schema) {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + schema.tableName + Constants.WHERE_CLAUSE + "1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            if (metaData.getColumnCount() != schema.columns.size()) {
+                return false;
+            }
+            for (int i = 0; i < schema.columns.size(); i++) {
+                if (!metaData.getColumnName(i + 1).equalsIgnoreCase(schema.columns.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Failed to revalidate schema of table {}: {}", schema.tableName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The columns of a table and the archival plans built from them.
+     */
+    static final class TableSchema {
+        final String tableName;
+        final List<String> columns;
+        final int[] columnTypes;
+        final List<String> keyColumns;
+        final String insertQuery;
+        private final ConcurrentMap<String, TableArchiver.TablePlan> plans = new ConcurrentHashMap<>();
+        private volatile long validatedAt = System.nanoTime();
+
+        TableSchema(String tableName, List<String> columns, int[] columnTypes, List<String> keyColumns) {
+            this.tableName = tableName;
+            this.columns = List.copyOf(columns);
+            this.columnTypes = columnTypes;
+            this.keyColumns = List.copyOf(keyColumns);
+            this.insertQuery = "INSERT INTO " + tableName + Constants.ARCHIVAL_TABLE_SUFFIX + " ("
+                    + String.join(Constants.COMMA_SEPARATOR + " ", columns) + ") VALUES ("
+                    + String.join(Constants.COMMA_SEPARATOR + " ", Collections.nCopies(columns.size(), "?")) + ")";
+        }
+
+        TableArchiver.TablePlan plan(String archiveTableName, String columnName, List<String> rollupColumns, ArchivalMode mode,
+                                     int chunkSize, int deleteBatchSize, ArchivalSink sink) {
+            String key = String.join("|", archiveTableName, columnName, String.join(Constants.COMMA_SEPARATOR, rollupColumns),
+                    String.valueOf(mode), String.valueOf(chunkSize), String.valueOf(deleteBatchSize), sink.getName());
+            return plans.computeIfAbsent(key, ignored -> new TableArchiver.TablePlan(this, archiveTableName, columnName,
+                    rollupColumns, mode, chunkSize, deleteBatchSize, sink));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.archival.archivalservice.utils;
+
+import com.archival.archivalservice.dto.Constants;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+public final class ArchivalTimeUtils {
+
+    private ArchivalTimeUtils() {
+    }
+
+    public static LocalDateTime calculateThreshold(LocalDateTime baseTime, long duration, TimeUnit timeUnit) {
+        return switch (timeUnit) {
+            case DAYS -> baseTime.minusDays(duration);
+            case HOURS -> baseTime.minus(duration, ChronoUnit.HOURS);
+            case MINUTES -> baseTime.minus(duration, ChronoUnit.MINUTES);
+            default -> {
+                if (Constants.MONTHS_TIME_UNIT.equals(timeUnit.name())) {
+                    yield baseTime.minusDays(duration * 30);
+                } else if (Constants.YEARS_TIME_UNIT.equals(timeUnit.name())) {
+                    yield baseTime.minusDays(duration * 365);
+                }
+                throw new IllegalArgumentException(Constants.UNSUPPORTED_TIME_UNIT_MESSAGE + timeUnit);
+            }
+        };
+    }
+}
@@ -0,0 +1,332 @@
+package com.archival.archivalservice.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * A compressed columnar file holding one segment of archived rows. Each column is encoded on its own and
+ * deflate-compressed, and a directory at the start of the file records where every column block lives, so a
+ * reader only inflates the columns it needs.
+ *
+ * <pre>
+ * int magic, int rowCount, int columnCount
+ * per column: UTF name, byte kind, long offset, int compressedLength, int length
+ * column blocks
+ * </pre>
+ */
+public final class ColumnarSegmentFile {
+
+    private static final int MAGIC = 0x41435331;
+
+    public static final byte LONG = 1;
+    public static final byte INT = 2;
+    public static final byte DOUBLE = 3;
+    public static final byte FLOAT = 4;
+    public static final byte DECIMAL = 5;
+    public static final byte BOOLEAN = 6;
+    public static final byte DATE = 7;
+    public static final byte TIMESTAMP = 8;
+    public static final byte BYTES = 9;
+    public static final byte STRING = 10;
+
+    private ColumnarSegmentFile() {
+    }
+
+    /**
+     * Maps a JDBC type to the encoding used for the column. Types without a dedicated encoding are kept
+     * as their string form.
+     */
+    public static byte kindOf(int jdbcType) {
+        return switch (jdbcType) {
+            case Types.BIGINT -> LONG;
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> INT;
+            case Types.DOUBLE, Types.FLOAT -> DOUBLE;
+            case Types.REAL -> FLOAT;
+            case Types.NUMERIC, Types.DECIMAL -> DECIMAL;
+            case Types.BOOLEAN, Types.BIT -> BOOLEAN;
+            case Types.DATE -> DATE;
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> TIMESTAMP;
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY -> BYTES;
+            default -> STRING;
+        };
+    }
+
+    /**
+     * The JDBC type values of an encoding are read back as, the inverse of {@link #kindOf(int)}.
+     */
+    public static int jdbcTypeOf(byte kind) {
+        return switch (kind) {
+            case LONG -> Types.BIGINT;
+            case INT -> Types.INTEGER;
+            case DOUBLE -> Types.DOUBLE;
+            case FLOAT -> Types.REAL;
+            case DECIMAL -> Types.NUMERIC;
+            case BOOLEAN -> Types.BOOLEAN;
+            case DATE -> Types.DATE;
+            case TIMESTAMP -> Types.TIMESTAMP;
+            case BYTES -> Types.VARBINARY;
+            default -> Types.VARCHAR;
+        };
+    }
+
+    /**
+     * Orderable value of a date or timestamp column, used for the time statistics of a segment.
+     */
+    public static long epochMicros(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            value = timestamp.toLocalDateTime();
+        } else if (value instanceof Date date) {
+            value = date.toLocalDate().atStartOfDay();
+        } else if (value instanceof LocalDate localDate) {
+            value = localDate.atStartOfDay();
+        }
+        LocalDateTime dateTime = (LocalDateTime) value;
+        return dateTime.toLocalDate().toEpochDay() * 86_400_000_000L + dateTime.toLocalTime().toNanoOfDay() / 1000;
+    }
+
+    public static void write(Path file, List<String> names, byte[] kinds, List<Object[]> rows) throws IOException {
+        List<byte[]> blocks = new ArrayList<>(names.size());
+        int[] lengths = new int[names.size()];
+        for (int column = 0; column < names.size(); column++) {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(raw)) {
+                for (Object[] row : rows) {
+                    writeValue(out, kinds[column], row[column]);
+                }
+            }
+            lengths[column] = raw.size();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new DeflaterOutputStream(compressed, new Deflater(Deflater.BEST_COMPRESSION))) {
+                raw.writeTo(out);
+            }
+            blocks.add(compressed.toByteArray());
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows.size());
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+                out.writeByte(0);
+                out.writeLong(0);
+                out.writeInt(0);
+                out.writeInt(0);
+            }
+        }
+        // the header has a fixed size once the names are known, so the block offsets follow from it
+        long offset = header.size();
+        header.reset();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows.size());
+            out.writeInt(names.size());
+            for (int column = 0; column < names.size(); column++) {
+                out.writeUTF(names.get(column));
+                out.writeByte(kinds[column]);
+                out.writeLong(offset);
+                out.writeInt(blocks.get(column).length);
+                out.writeInt(lengths[column]);
+                offset += blocks.get(column).length;
+            }
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            header.writeTo(out);
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * Encodes one nullable value of the given kind.
+     */
+    public static void writeValue(DataOutputStream out, byte kind, Object value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value == null) {
+            return;
+        }
+        switch (kind) {
+            case LONG -> out.writeLong(((Number) value).longValue());
+            case INT -> out.writeInt(((Number) value).intValue());
+            case DOUBLE -> out.writeDouble(((Number) value).doubleValue());
+            case FLOAT -> out.writeFloat(((Number) value).floatValue());
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case DATE -> out.writeLong(value instanceof Date date ? date.toLocalDate().toEpochDay() : ((LocalDate) value).toEpochDay());
+            case TIMESTAMP -> out.writeLong(epochMicros(value));
+            case BYTES -> {
+                byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            default -> {
+                byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Decodes one value written by {@link #writeValue}.
+     */
+    public static Object readValue(DataInputStream in, byte kind) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return switch (kind) {
+            case LONG -> in.readLong();
+            case INT -> in.readInt();
+            case DOUBLE -> in.readDouble();
+            case FLOAT -> in.readFloat();
+            case BOOLEAN -> in.readBoolean();
+            case DATE -> Date.valueOf(LocalDate.ofEpochDay(in.readLong()));
+            case TIMESTAMP -> {
+                long micros = in.readLong();
+                LocalDateTime dateTime = LocalDate.ofEpochDay(Math.floorDiv(micros, 86_400_000_000L)).atStartOfDay()
+                        .plusNanos(Math.floorMod(micros, 86_400_000_000L) * 1000);
+                yield Timestamp.valueOf(dateTime);
+            }
+            case DECIMAL -> new BigDecimal(readString(in));
+            case BYTES -> readBytes(in);
+            default -> readString(in);
+        };
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Values are only ever decoded from memory, so a length beyond what is left is corrupt, and is rejected before
+     * it is allocated.
+     */
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new EOFException("Value of " + length + " bytes exceeds the remaining input");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads single columns of a segment file.
+     */
+    public static final class Reader {
+        private final Path file;
+        private final int rowCount;
+        private final List<String> names = new ArrayList<>();
+        private final byte[] kinds;
+        private final long[] offsets;
+        private final int[] compressedLengths;
+        private final int[] lengths;
+
+        private Reader(Path file) throws IOException {
+            this.file = file;
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a columnar segment file: " + file);
+                }
+                rowCount = in.readInt();
+                int columnCount = in.readInt();
+                kinds = new byte[columnCount];
+                offsets = new long[columnCount];
+                compressedLengths = new int[columnCount];
+                lengths = new int[columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    names.add(in.readUTF());
+                    kinds[column] = in.readByte();
+                    offsets[column] = in.readLong();
+                    compressedLengths[column] = in.readInt();
+                    lengths[column] = in.readInt();
+                }
+            }
+        }
+
+        public int rowCount() {
+            return rowCount;
+        }
+
+        public List<String> names() {
+            return names;
+        }
+
+        public int indexOf(String name) {
+            for (int column = 0; column < names.size(); column++) {
+                if (names.get(column).equalsIgnoreCase(name)) {
+                    return column;
+                }
+            }
+            return -1;
+        }
+
+        public Object[] readColumn(int column) throws IOException {
+            byte[] compressed = new byte[compressedLengths[column]];
+            ByteBuffer buffer = ByteBuffer.wrap(compressed);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // a positional read may return fewer bytes than asked for
+                long position = offsets[column];
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new EOFException("Column " + names.get(column) + " is truncated in " + file);
+                    }
+                    position += read;
+                }
+            }
+            byte[] raw = new byte[lengths[column]];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                if (inflater.inflate(raw) != raw.length) {
+                    throw new IOException("Column " + names.get(column) + " is shorter than recorded in " + file);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt column " + names.get(column) + " in " + file, e);
+            } finally {
+                inflater.end();
+            }
+            Object[] values = new Object[rowCount];
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = readValue(in, kinds[column]);
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.archival.archivalservice.utils;
+
+import com.archival.archivalservice.dto.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opaque position of a keyset page: the values of the order columns ({@code created_at} and the primary key) of
+ * the last row returned, and the sort direction they were read in. The values keep their type through the token,
+ * encoded like the values of {@link ColumnarSegmentFile}, so they can be bound to the seek predicate as is.
+ */
+public final class ContinuationToken {
+
+    private static final byte VERSION = 1;
+
+    private final boolean descending;
+    private final List<String> columns;
+    private final Object[] values;
+
+    public ContinuationToken(boolean descending, List<String> columns, Object[] values) {
+        this.descending = descending;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * The columns keyset pages are ordered by: {@code created_at}, then the primary key as the tie breaker.
+     */
+    public static List<String> orderColumns(List<String> keyColumns) {
+        List<String> orderColumns = new ArrayList<>();
+        orderColumns.add(Constants.CREATED_AT_COLUMN);
+        // archive tables partitioned on created_at carry it in their primary key as well
+        keyColumns.stream().filter(key -> !key.equalsIgnoreCase(Constants.CREATED_AT_COLUMN)).forEach(orderColumns::add);
+        return orderColumns;
+    }
+
+    /**
+     * The token resuming after {@code row}, which must hold every one of the order {@code columns}.
+     */
+    public static ContinuationToken after(Map<String, Object> row, boolean descending, List<String> columns) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(columns.get(i));
+        }
+        return new ContinuationToken(descending, columns, values);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not issued by {@link #encode()}
+     */
+    public static ContinuationToken decode(String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported continuation token");
+            }
+            boolean descending = in.readBoolean();
+            int count = in.readUnsignedByte();
+            List<String> columns = new ArrayList<>(count);
+            Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                columns.add(in.readUTF());
+                values[i] = ColumnarSegmentFile.readValue(in, in.readByte());
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Trailing bytes in continuation token");
+            }
+            return new ContinuationToken(descending, columns, values);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+    }
+
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeBoolean(descending);
+            out.writeByte(columns.size());
+            for (int i = 0; i < values.length; i++) {
+                byte kind = kindOf(values[i]);
+                out.writeUTF(columns.get(i));
+                out.writeByte(kind);
+                ColumnarSegmentFile.writeValue(out, kind, values[i]);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * Whether {@code row} comes after the token's position in the token's sort direction.
+     */
+    public boolean isFollowedBy(Map<String, Object> row) {
+        for (int i = 0; i < values.length; i++) {
+            int compared = compareValues(row.get(columns.get(i)), values[i]);
+            if (compared != 0) {
+                return descending ? compared < 0 : compared > 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orders rows by the given columns the way PostgreSQL does, with {@code null} sorting as the largest value.
+     */
+    public static Comparator<Map<String, Object>> order(List<String> columns, boolean descending) {
+        return (first, second) -> {
+            for (String column : columns) {
+                int compared = compareValues(first.get(column), second.get(column));
+                if (compared != 0) {
+                    return descending ? -compared : compared;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Compares two column values across the types the archival DB, the cold tier and the segment files return
+     * them as, with {@code null} as the largest value.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : a == null ? 1 : -1;
+        }
+        if (isTemporal(a) && isTemporal(b)) {
+            return Long.compare(ColumnarSegmentFile.epochMicros(a), ColumnarSegmentFile.epochMicros(b));
+        }
+        if (a instanceof Number first && b instanceof Number second) {
+            return new BigDecimal(first.toString()).compareTo(new BigDecimal(second.toString()));
+        }
+        if (a instanceof Comparable comparable && a.getClass() == b.getClass()) {
+            return comparable.compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static boolean isTemporal(Object value) {
+        return value instanceof java.util.Date || value instanceof LocalDate || value instanceof LocalDateTime;
+    }
+
+    private static byte kindOf(Object value) {
+        if (value instanceof Long) {
+            return ColumnarSegmentFile.LONG;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ColumnarSegmentFile.INT;
+        }
+        if (value instanceof Double) {
+            return ColumnarSegmentFile.DOUBLE;
+        }
+        if (value instanceof Float) {
+            return ColumnarSegmentFile.FLOAT;
+        }
+        if (value instanceof BigDecimal) {
+            return ColumnarSegmentFile.DECIMAL;
+        }
+        if (value instanceof Boolean) {
+            return ColumnarSegmentFile.BOOLEAN;
+        }
+        if (value instanceof Date || value instanceof LocalDate) {
+            return ColumnarSegmentFile.DATE;
+        }
+        if (value instanceof Timestamp || value instanceof LocalDateTime) {
+            return ColumnarSegmentFile.TIMESTAMP;
+        }
+        if (value instanceof byte[]) {
+            return ColumnarSegmentFile.BYTES;
+        }
+        return ColumnarSegmentFile.STRING;
+    }
+}
@@ -0,0 +1,88 @@
+package com.archival.archivalservice.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared and exclusive locks on lock files that both the threads of this instance and other instances mounting the
+ * same directory respect. A file lock is held by the whole JVM and cannot be taken twice, so threads first agree
+ * among themselves and the readers of this instance share a single shared file lock.
+ */
+public final class FileLocks {
+
+    private final Map<Path, Holder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code action} while no other thread or instance holds the lock.
+     */
+    public <T, E extends Exception> T exclusive(Path lockFile, LockedAction<T, E> action) throws IOException, E {
+        Holder holder = holders.computeIfAbsent(lockFile, file -> new Holder());
+        holder.threads.writeLock().lock();
+        try (FileChannel channel = open(lockFile);
+             FileLock lock = channel.lock()) {
+            return action.run();
+        } finally {
+            holder.threads.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} while no other thread or instance holds the lock exclusively.
+     */
+    public <T, E extends Exception> T shared(Path lockFile, LockedAction<T, E> action) throws IOException, E {
+        Holder holder = holders.computeIfAbsent(lockFile, file -> new Holder());
+        holder.threads.readLock().lock();
+        try {
+            holder.acquireShared(lockFile);
+            try {
+                return action.run();
+            } finally {
+                holder.releaseShared();
+            }
+        } finally {
+            holder.threads.readLock().unlock();
+        }
+    }
+
+    private static FileChannel open(Path lockFile) throws IOException {
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public interface LockedAction<T, E extends Exception> {
+        T run() throws IOException, E;
+    }
+
+    private static final class Holder {
+        final ReentrantReadWriteLock threads = new ReentrantReadWriteLock();
+        private int readers;
+        private FileChannel channel;
+
+        synchronized void acquireShared(Path lockFile) throws IOException {
+            if (readers == 0) {
+                FileChannel opened = open(lockFile);
+                try {
+                    opened.lock(0, Long.MAX_VALUE, true);
+                } catch (IOException | RuntimeException e) {
+                    opened.close();
+                    throw e;
+                }
+                channel = opened;
+            }
+            readers++;
+        }
+
+        synchronized void releaseShared() throws IOException {
+            if (--readers == 0) {
+                // closing the channel releases its lock
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.archival.archivalservice.utils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the timestamp bounds of a PostgreSQL range partition from its {@code pg_get_expr(relpartbound, oid)} text,
+ * e.g. {@code FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')}.
+ */
+public final class PartitionBounds {
+
+    private static final Pattern RANGE_BOUND = Pattern.compile("FOR VALUES FROM \\((.+)\\) TO \\((.+)\\)");
+
+    private static final String DEFAULT_BOUND = "DEFAULT";
+
+    private static final Pattern TRAILING_HOUR_OFFSET = Pattern.compile("([+-]\\d{2})$");
+
+    private PartitionBounds() {
+    }
+
+    /**
+     * Whether this is the bound of the default partition, which takes the rows no other partition accepts.
+     */
+    public static boolean isDefault(String partitionBound) {
+        return partitionBound != null && DEFAULT_BOUND.equalsIgnoreCase(partitionBound.trim());
+    }
+
+    /**
+     * Inclusive lower bound, or {@code null} for {@code MINVALUE} and bounds that are not a range of timestamps.
+     */
+    public static LocalDateTime lower(String partitionBound) {
+        Matcher matcher = RANGE_BOUND.matcher(partitionBound);
+        return matcher.matches() ? parse(matcher.group(1)) : null;
+    }
+
+    /**
+     * Exclusive upper bound, or {@code null} for {@code MAXVALUE} and bounds that are not a range of timestamps.
+     */
+    public static LocalDateTime upper(String partitionBound) {
+        Matcher matcher = RANGE_BOUND.matcher(partitionBound);
+        return matcher.matches() ? parse(matcher.group(2)) : null;
+    }
+
+    private static LocalDateTime parse(String literal) {
+        String value = literal.trim();
+        if (!value.startsWith("'")) {
+            return null;
+        }
+        value = value.substring(1, value.length() - 1).replace(' ', 'T');
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay();
+            }
+            if (value.lastIndexOf('+') > 10 || value.lastIndexOf('-') > 10) {
+                OffsetDateTime offsetDateTime = OffsetDateTime.parse(TRAILING_HOUR_OFFSET.matcher(value).replaceFirst("$1:00"));
+                return offsetDateTime.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalJob;
+import com.archival.archivalservice.enums.ArchivalJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ArchivalJobServiceTests {
+
+    private final ArchivalService archivalService = mock(ArchivalService.class);
+
+    private final CountDownLatch running = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ArchivalJobService jobService = jobService();
+
+    @AfterEach
+    void stopJobs() {
+        release.countDown();
+        jobService.shutdown();
+    }
+
+    @Test
+    void forgetsAQueuedJobOnceItIsCancelled() throws Throwable {
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(archivalService).runArchival(any(ArchivalJob.class));
+        jobService.submit();
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        ArchivalJob queued = jobService.submit();
+        jobService.cancel(queued.getJobId());
+
+        assertEquals(ArchivalJobStatus.CANCELLED, queued.getStatus());
+        assertNotNull(queued.getFinishedAt());
+        assertFalse(futures().containsKey(queued.getJobId()));
+    }
+
+    @Test
+    void forgetsTheFutureOfAJobThatRan() throws Exception {
+        ArchivalJob job = jobService.submit();
+
+        Future<?> future = futures().get(job.getJobId());
+        if (future != null) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertTrue(futures().isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Future<?>> futures() {
+        Map<String, Future<?>> futures = (Map<String, Future<?>>) ReflectionTestUtils.getField(jobService, "futures");
+        synchronized (ReflectionTestUtils.getField(jobService, "jobs")) {
+            return Map.copyOf(futures);
+        }
+    }
+
+    private ArchivalJobService jobService() {
+        ArchivalJobService jobService = new ArchivalJobService();
+        ReflectionTestUtils.setField(jobService, "archivalService", archivalService);
+        ReflectionTestUtils.setField(jobService, "concurrency", 1);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(jobService, "history", 50);
+        jobService.startExecutor();
+        return jobService;
+    }
+}
@@ -0,0 +1,100 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.apprepository.ArchivalLeaseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArchivalLeaseServiceTests {
+
+    private static final LocalDateTime RUN_STARTED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final ArchivalLeaseRepository repository = mock(ArchivalLeaseRepository.class);
+
+    private final ArchivalLeaseService leases = leases();
+
+    @Test
+    void holdsATableForOneJobAtATime() {
+        when(repository.acquire(eq("orders"), anyString(), anyLong(), eq(RUN_STARTED_AT))).thenReturn(1);
+
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+        assertFalse(leases.tryAcquire("orders", RUN_STARTED_AT));
+
+        leases.release("orders", true);
+        verify(repository).release(eq("orders"), anyString(), eq(true));
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+    }
+
+    @Test
+    void leavesATableLeasedElsewhereForTheNextRun() {
+        when(repository.acquire(eq("orders"), anyString(), anyLong(), eq(RUN_STARTED_AT))).thenReturn(0);
+
+        assertFalse(leases.tryAcquire("orders", RUN_STARTED_AT));
+
+        when(repository.acquire(eq("orders"), anyString(), anyLong(), eq(RUN_STARTED_AT))).thenReturn(1);
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+    }
+
+    @Test
+    void doesNotRenewALeaseThatIsStillBeingAcquired() {
+        when(repository.acquire(eq("orders"), anyString(), anyLong(), eq(RUN_STARTED_AT))).thenAnswer(invocation -> {
+            // the renewer runs while the lease is being taken
+            leases.renewLeases();
+            return 1;
+        });
+
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+
+        verify(repository, never()).renew(anyString(), anyString(), anyLong());
+        assertFalse(leases.isLost("orders"));
+    }
+
+    @Test
+    void abortsTheRunOfALeaseThatCouldNotBeRenewed() {
+        when(repository.acquire(eq("orders"), anyString(), anyLong(), any())).thenReturn(1);
+        when(repository.renew(eq("orders"), anyString(), anyLong())).thenReturn(0);
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+
+        leases.renewLeases();
+
+        assertTrue(leases.isLost("orders"));
+        // the run that lost the lease still owns the table in this instance until it stops
+        assertFalse(leases.tryAcquire("orders", RUN_STARTED_AT));
+        leases.release("orders", false);
+        verify(repository, never()).release(anyString(), anyString(), anyBoolean());
+        assertFalse(leases.isLost("orders"));
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+    }
+
+    @Test
+    void keepsALeaseWhoseRenewalFailed() {
+        when(repository.acquire(eq("orders"), anyString(), anyLong(), any())).thenReturn(1);
+        when(repository.renew(eq("orders"), anyString(), anyLong())).thenThrow(new IllegalStateException("connection refused"));
+        assertTrue(leases.tryAcquire("orders", RUN_STARTED_AT));
+
+        leases.renewLeases();
+
+        assertFalse(leases.isLost("orders"));
+    }
+
+    private ArchivalLeaseService leases() {
+        ArchivalLeaseService leases = new ArchivalLeaseService();
+        ReflectionTestUtils.setField(leases, "archivalLeaseRepository", repository);
+        ReflectionTestUtils.setField(leases, "enabled", true);
+        ReflectionTestUtils.setField(leases, "ttlSeconds", 120L);
+        return leases;
+    }
+}
@@ -0,0 +1,50 @@
+package com.archival.archivalservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArchivalPermitsTests {
+
+    @Test
+    void givesAdditionalWorkersOnlyTheRemainingPermits() throws InterruptedException {
+        ArchivalPermits permits = permits(4, 4);
+        // the table itself holds one permit of each database
+        permits.appDb().acquire();
+        permits.archivalDb().acquire();
+
+        assertEquals(3, permits.tryAcquireWorkers(7));
+        assertEquals(0, permits.tryAcquireWorkers(1));
+
+        permits.releaseWorkers(3);
+        assertEquals(3, permits.appDb().availablePermits());
+        assertEquals(3, permits.archivalDb().availablePermits());
+    }
+
+    @Test
+    void needsAPermitOfBothDatabasesPerWorker() {
+        ArchivalPermits permits = permits(4, 2);
+
+        assertEquals(2, permits.tryAcquireWorkers(3));
+        // the app DB permit taken for the third worker is handed back
+        assertEquals(2, permits.appDb().availablePermits());
+        assertEquals(0, permits.archivalDb().availablePermits());
+    }
+
+    @Test
+    void keepsAtLeastOnePermitPerDatabase() {
+        ArchivalPermits permits = permits(0, -1);
+
+        assertEquals(1, permits.appDb().availablePermits());
+        assertEquals(1, permits.archivalDb().availablePermits());
+    }
+
+    private static ArchivalPermits permits(int appDbLimit, int archivalDbLimit) {
+        ArchivalPermits permits = new ArchivalPermits();
+        ReflectionTestUtils.setField(permits, "appDbLimit", appDbLimit);
+        ReflectionTestUtils.setField(permits, "archivalDbLimit", archivalDbLimit);
+        permits.initDataSourcePermits();
+        return permits;
+    }
+}
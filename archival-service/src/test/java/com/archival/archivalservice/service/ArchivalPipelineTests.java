@@ -0,0 +1,102 @@
+package com.archival.archivalservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArchivalPipelineTests {
+
+    private final DataSource dataSource = mock(DataSource.class);
+
+    private final Connection connection = mock(Connection.class);
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+
+    private final ArchivalPipeline pipeline = new ArchivalPipeline();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        ReflectionTestUtils.setField(pipeline, "fetchSize", 2);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 3);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @AfterEach
+    void shutdown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void writesEveryRowInBatches() throws SQLException {
+        AtomicInteger row = new AtomicInteger();
+        when(resultSet.next()).thenAnswer(invocation -> row.incrementAndGet() <= 7);
+        when(resultSet.getObject(1)).thenAnswer(invocation -> (long) row.get());
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+
+        long written = pipeline.transfer(dataSource, "SELECT id FROM orders", new Object[0], 1, 3, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(record -> ids.add(record[0]));
+            return batch.size();
+        });
+
+        assertEquals(7, written);
+        assertEquals(List.of(3, 3, 1), batchSizes);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), ids);
+        verify(statement).setFetchSize(2);
+        // the cursor's transaction is rolled back and the connection handed back as it was
+        verify(connection, timeout(5000)).rollback();
+        verify(connection, timeout(5000)).setAutoCommit(true);
+    }
+
+    @Test
+    void failsWithTheErrorOfTheReader() throws SQLException {
+        SQLException failure = new SQLException("canceling statement due to statement timeout");
+        when(resultSet.next()).thenReturn(true, true).thenThrow(failure);
+        when(resultSet.getObject(1)).thenReturn(1L);
+
+        SQLException thrown = assertThrows(SQLException.class, () -> pipeline.transfer(dataSource, "SELECT id FROM orders",
+                new Object[0], 1, 10, List::size));
+
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void stopsTheReaderWhenTheWriterFails() throws SQLException {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getObject(1)).thenReturn(1L);
+
+        assertThrows(IllegalStateException.class, () -> pipeline.transfer(dataSource, "SELECT id FROM orders",
+                new Object[0], 1, 2, batch -> {
+                    throw new IllegalStateException("archive unavailable");
+                }));
+
+        // an endless source is left once the queue stops being drained
+        verify(connection, timeout(5000)).rollback();
+    }
+}
@@ -0,0 +1,140 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.Constants;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchivalRollupsTests {
+
+    private static final TableSchemaCache.TableSchema SCHEMA = new TableSchemaCache.TableSchema("orders",
+            List.of("id", "created_at", "Amount", "quantity", "customer"),
+            new int[]{Types.BIGINT, Types.TIMESTAMP, Types.NUMERIC, Types.INTEGER, Types.VARCHAR},
+            List.of("id"));
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 10, 14, 0);
+
+    @Test
+    void resolvesOnlyNumericColumnsOfTheTable() {
+        ArchivalRollups rollups = rollups(true);
+
+        assertEquals(List.of("Amount", "quantity"), rollups.resolveColumns(SCHEMA, " amount ,customer,missing,QUANTITY"));
+        assertTrue(rollups.resolveColumns(SCHEMA, " ").isEmpty());
+        assertTrue(rollups.resolveColumns(SCHEMA, null).isEmpty());
+        assertTrue(rollups(false).resolveColumns(SCHEMA, "amount").isEmpty());
+    }
+
+    @Test
+    void mergesRecordsOfTheSameHour() {
+        List<Object[]> records = List.of(
+                new Object[]{1L, Timestamp.valueOf(HOUR.plusMinutes(5)), new BigDecimal("10.50"), 3},
+                new Object[]{2L, HOUR.plusMinutes(59).plusSeconds(59), new BigDecimal("-2"), null},
+                new Object[]{3L, Timestamp.valueOf(HOUR), null, 7},
+                new Object[]{4L, null, new BigDecimal("99"), 1});
+
+        Map<LocalDateTime, ArchivalRollups.Bucket> buckets = ArchivalRollups.buckets(records, 1, new int[]{2, 3});
+
+        assertEquals(List.of(HOUR), new ArrayList<>(buckets.keySet()));
+        ArchivalRollups.Bucket bucket = buckets.get(HOUR);
+        // the record without a time is left out, nulls count as rows but not as values
+        assertEquals(3, bucket.count);
+        assertArrayEquals(new long[]{2, 2}, bucket.counts);
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("-2"), new BigDecimal("3")}, bucket.min);
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("10.50"), new BigDecimal("7")}, bucket.max);
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("8.50"), new BigDecimal("10")}, bucket.sum);
+    }
+
+    @Test
+    void splitsRecordsIntoHoursInOrder() {
+        List<Object[]> records = List.of(
+                new Object[]{Timestamp.valueOf(HOUR.plusHours(2).plusMinutes(1)), 1L},
+                new Object[]{Date.valueOf(LocalDate.of(2024, 3, 10)), 2L},
+                new Object[]{HOUR.minusNanos(1), 3L},
+                new Object[]{HOUR, 4L});
+
+        Map<LocalDateTime, ArchivalRollups.Bucket> buckets = ArchivalRollups.buckets(records, 0, new int[]{1});
+
+        assertEquals(List.of(HOUR.toLocalDate().atStartOfDay(), HOUR.minusHours(1), HOUR, HOUR.plusHours(2)),
+                new ArrayList<>(buckets.keySet()));
+        assertEquals(new BigDecimal("3"), buckets.get(HOUR.minusHours(1)).sum[0]);
+    }
+
+    @Test
+    void upsertsTheRowCountAndEveryColumnWithValues() {
+        List<Object[]> records = List.of(
+                new Object[]{HOUR, new BigDecimal("4"), null},
+                new Object[]{HOUR.plusHours(1), null, 2L});
+
+        List<Object[]> rows = ArchivalRollups.upsertRows("orders", List.of("Amount", "quantity"),
+                ArchivalRollups.buckets(records, 0, new int[]{1, 2}));
+
+        assertEquals(4, rows.size());
+        assertArrayEquals(new Object[]{"orders", HOUR, Constants.ROLLUP_ALL_COLUMNS, 1L, null, null, null}, rows.get(0));
+        assertArrayEquals(new Object[]{"orders", HOUR, "amount", 1L, new BigDecimal("4"), new BigDecimal("4"),
+                new BigDecimal("4")}, rows.get(1));
+        assertArrayEquals(new Object[]{"orders", HOUR.plusHours(1), Constants.ROLLUP_ALL_COLUMNS, 1L, null, null, null},
+                rows.get(2));
+        assertArrayEquals(new Object[]{"orders", HOUR.plusHours(1), "quantity", 1L, new BigDecimal("2"),
+                new BigDecimal("2"), new BigDecimal("2")}, rows.get(3));
+    }
+
+    @Test
+    void readsDatabaseAggregatesBackIntoBuckets() {
+        List<String> columns = List.of("amount");
+        String query = rollups(true).aggregateQuery("orders_archive", "created_at", columns);
+        List<Object[]> aggregates = new ArrayList<>();
+        aggregates.add(new Object[]{Timestamp.valueOf(HOUR), 5L, 4L, 1, 9.5, 20L});
+        aggregates.add(new Object[]{null, 2L, 0L, null, null, null});
+
+        Map<LocalDateTime, ArchivalRollups.Bucket> buckets = ArchivalRollups.toBuckets(aggregates, columns);
+
+        assertEquals("SELECT date_trunc('hour', created_at), COUNT(*), COUNT(amount), MIN(amount), MAX(amount), "
+                + "SUM(amount) FROM orders_archive", query);
+        assertEquals(aggregates.get(0).length, ArchivalRollups.aggregateWidth(columns));
+        assertEquals(List.of(HOUR), new ArrayList<>(buckets.keySet()));
+        ArchivalRollups.Bucket bucket = buckets.get(HOUR);
+        assertEquals(5, bucket.count);
+        assertEquals(4, bucket.counts[0]);
+        assertEquals(new BigDecimal("1"), bucket.min[0]);
+        assertEquals(new BigDecimal("9.5"), bucket.max[0]);
+        assertEquals(new BigDecimal("20"), bucket.sum[0]);
+    }
+
+    @Test
+    void leavesColumnsWithoutValuesEmpty() {
+        Map<LocalDateTime, ArchivalRollups.Bucket> buckets = ArchivalRollups.toBuckets(
+                List.<Object[]>of(new Object[]{Timestamp.valueOf(HOUR), 3L, 0L, null, null, null}), List.of("amount"));
+
+        assertNull(buckets.get(HOUR).sum[0]);
+        assertEquals(1, ArchivalRollups.upsertRows("orders", List.of("amount"), buckets).size());
+    }
+
+    @Test
+    void rejectsUnknownBucketUnits() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> rollups(true).aggregate("orders", "minute", null, null, null));
+
+        assertEquals(Constants.INVALID_BUCKET_MESSAGE + "minute", exception.getMessage());
+    }
+
+    private static ArchivalRollups rollups(boolean enabled) {
+        ArchivalRollups rollups = new ArchivalRollups();
+        ReflectionTestUtils.setField(rollups, "enabled", enabled);
+        return rollups;
+    }
+}
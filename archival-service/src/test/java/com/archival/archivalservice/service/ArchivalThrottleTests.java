@@ -0,0 +1,75 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.appmodels.ArchivalConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArchivalThrottleTests {
+
+    private final ArchivalThrottle archivalThrottle = new ArchivalThrottle();
+
+    @Test
+    void keepsTheChunkSizeWithoutATargetDuration() {
+        ArchivalThrottle.ChunkThrottle throttle = archivalThrottle.start(configuration(null, null, null), 1000);
+
+        throttle.chunkDone(1000, TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(1000, throttle.chunkSize());
+    }
+
+    @Test
+    void growsAtMostTwofoldPerChunk() {
+        ArchivalThrottle.ChunkThrottle throttle = archivalThrottle.start(configuration(1000, null, null), 100);
+
+        // 10000 records/s would allow chunks of 10000 records
+        throttle.chunkDone(100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(200, throttle.chunkSize());
+
+        throttle.chunkDone(200, TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(400, throttle.chunkSize());
+    }
+
+    @Test
+    void shrinksRightAwayWhenAChunkRunsTooLong() {
+        ArchivalThrottle.ChunkThrottle throttle = archivalThrottle.start(configuration(1000, 10, null), 1000);
+
+        // 250 records/s fit 250 records into the target second
+        throttle.chunkDone(1000, TimeUnit.SECONDS.toNanos(4));
+
+        assertEquals(250, throttle.chunkSize());
+    }
+
+    @Test
+    void staysWithinTheConfiguredBounds() {
+        ArchivalThrottle.ChunkThrottle throttle = archivalThrottle.start(configuration(1000, 50, 300), 1000);
+        assertEquals(300, throttle.chunkSize());
+
+        throttle.chunkDone(300, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(300, throttle.chunkSize());
+
+        ArchivalThrottle.ChunkThrottle slow = archivalThrottle.start(configuration(1000, 50, 300), 100);
+        slow.chunkDone(100, TimeUnit.SECONDS.toNanos(600));
+        assertEquals(50, slow.chunkSize());
+    }
+
+    @Test
+    void ignoresEmptyChunks() {
+        ArchivalThrottle.ChunkThrottle throttle = archivalThrottle.start(configuration(1000, null, null), 500);
+
+        throttle.chunkDone(0, TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(500, throttle.chunkSize());
+    }
+
+    private static ArchivalConfiguration configuration(Integer targetChunkMillis, Integer minChunkSize, Integer maxChunkSize) {
+        ArchivalConfiguration configuration = new ArchivalConfiguration();
+        configuration.setTableName("orders");
+        configuration.setTargetChunkMillis(targetChunkMillis);
+        configuration.setMinChunkSize(minChunkSize);
+        configuration.setMaxChunkSize(maxChunkSize);
+        return configuration;
+    }
+}
@@ -0,0 +1,45 @@
+package com.archival.archivalservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchivePartitionManagerTests {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final LocalDateTime FEBRUARY = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private static final LocalDateTime MARCH = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Test
+    void overlapsOnlyPartitionsWhoseRangeIntersects() {
+        List<LocalDateTime[]> partitions = List.<LocalDateTime[]>of(new LocalDateTime[]{JANUARY, FEBRUARY});
+
+        assertTrue(ArchivePartitionManager.overlapsAny(partitions, JANUARY, FEBRUARY));
+        assertTrue(ArchivePartitionManager.overlapsAny(partitions, JANUARY.plusDays(10), MARCH));
+        // the upper bound is exclusive
+        assertFalse(ArchivePartitionManager.overlapsAny(partitions, FEBRUARY, MARCH));
+    }
+
+    @Test
+    void treatsOneOpenBoundAsUnbounded() {
+        List<LocalDateTime[]> partitions = List.<LocalDateTime[]>of(new LocalDateTime[]{null, FEBRUARY},
+                new LocalDateTime[]{MARCH, null});
+
+        assertTrue(ArchivePartitionManager.overlapsAny(partitions, JANUARY.minusYears(5), JANUARY));
+        assertTrue(ArchivePartitionManager.overlapsAny(partitions, MARCH.plusYears(5), MARCH.plusYears(6)));
+        assertFalse(ArchivePartitionManager.overlapsAny(partitions, FEBRUARY, MARCH));
+    }
+
+    @Test
+    void ignoresPartitionsWithoutTimestampBounds() {
+        List<LocalDateTime[]> partitions = List.<LocalDateTime[]>of(new LocalDateTime[]{null, null});
+
+        assertFalse(ArchivePartitionManager.overlapsAny(partitions, JANUARY, FEBRUARY));
+    }
+}
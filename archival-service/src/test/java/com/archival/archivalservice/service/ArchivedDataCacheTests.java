@@ -0,0 +1,146 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import com.archival.archivalservice.dto.ArchivedDataPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ArchivedDataCacheTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ArchivedDataCache cache = new ArchivedDataCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 3);
+        ReflectionTestUtils.setField(cache, "maxRows", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        cache.registerMeters();
+    }
+
+    @Test
+    void servesRepeatedQueriesFromTheCache() throws IOException, SQLException {
+        ArchivedDataPage first = get("orders", query(0), 10);
+        ArchivedDataPage second = get("orders", query(0), 10);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("archival.query-cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void keysOnEveryQueryParameter() throws IOException, SQLException {
+        get("orders", query(0), 10);
+        ArchivalQueryDTO sorted = query(0);
+        sorted.setSort("desc");
+        get("orders", sorted, 10);
+        ArchivalQueryDTO filtered = query(0);
+        filtered.setFilter(List.of("status:eq:paid"));
+        get("orders", filtered, 10);
+        get("invoices", query(0), 10);
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidatesOnlyThePagesOfTheTable() throws IOException, SQLException {
+        get("orders", query(0), 10);
+        get("orders", query(1), 10);
+        get("invoices", query(0), 10);
+
+        cache.invalidate("orders");
+        get("orders", query(0), 10);
+        get("invoices", query(0), 10);
+
+        assertEquals(4, loads.get());
+        assertEquals(20, meterRegistry.get("archival.query-cache.rows").gauge().value());
+    }
+
+    @Test
+    void doesNotKeepAPageLoadedWhileTheTableWasInvalidated() throws IOException, SQLException {
+        cache.get("orders", query(0), () -> {
+            cache.invalidate("orders");
+            return page(10);
+        });
+        assertEquals(0, meterRegistry.get("archival.query-cache.entries").gauge().value());
+
+        get("orders", query(0), 10);
+        assertEquals(2, loads.get());
+        assertEquals(1, meterRegistry.get("archival.query-cache.entries").gauge().value());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPageBeyondMaxEntries() throws IOException, SQLException {
+        get("orders", query(0), 1);
+        get("orders", query(1), 1);
+        get("orders", query(2), 1);
+        // touching page 0 leaves page 1 as the eldest
+        get("orders", query(0), 1);
+        get("orders", query(3), 1);
+
+        get("orders", query(0), 1);
+        get("orders", query(2), 1);
+        assertEquals(4, loads.get());
+        get("orders", query(1), 1);
+        assertEquals(5, loads.get());
+        assertEquals(2, meterRegistry.get("archival.query-cache.evictions").counter().count());
+    }
+
+    @Test
+    void evictsBeyondMaxRowsAndNeverKeepsOversizedPages() throws IOException, SQLException {
+        get("orders", query(0), 60);
+        get("orders", query(1), 60);
+        assertEquals(60, meterRegistry.get("archival.query-cache.rows").gauge().value());
+
+        get("orders", query(2), 101);
+        get("orders", query(2), 101);
+        assertEquals(4, loads.get());
+        assertEquals(60, meterRegistry.get("archival.query-cache.rows").gauge().value());
+    }
+
+    @Test
+    void bypassesTheCacheWhenDisabled() throws IOException, SQLException {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        get("orders", query(0), 10);
+        get("orders", query(0), 10);
+
+        assertEquals(2, loads.get());
+    }
+
+    private ArchivedDataPage get(String tableName, ArchivalQueryDTO queryParams, int rows) throws IOException, SQLException {
+        return cache.get(tableName, queryParams, () -> page(rows));
+    }
+
+    private ArchivedDataPage page(int rows) {
+        loads.incrementAndGet();
+        List<Map<String, Object>> records = new ArrayList<>(Collections.nCopies(rows, Map.of("id", 1L)));
+        return new ArchivedDataPage(records, null);
+    }
+
+    private static ArchivalQueryDTO query(int page) {
+        ArchivalQueryDTO queryParams = new ArchivalQueryDTO();
+        queryParams.setPage(page);
+        queryParams.setSize(10);
+        queryParams.setSort("asc");
+        return queryParams;
+    }
+}
@@ -0,0 +1,119 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchivedDataQueryTests {
+
+    private static final TableSchemaCache.TableSchema SCHEMA = new TableSchemaCache.TableSchema("orders_archive",
+            List.of("id", "created_at", "customer", "amount", "paid", "due_on"),
+            new int[]{Types.BIGINT, Types.TIMESTAMP, Types.VARCHAR, Types.NUMERIC, Types.BOOLEAN, Types.DATE},
+            List.of("id", "created_at"));
+
+    @Test
+    void selectsEveryColumnWithoutAProjection() {
+        ArchivedDataQuery query = ArchivedDataQuery.compile(SCHEMA, new ArchivalQueryDTO());
+
+        assertEquals("*", query.selectList());
+        assertEquals(List.of("id", "created_at"), query.getKeyColumns());
+    }
+
+    @Test
+    void projectsSchemaColumnsAndKeepsTheOrderColumns() {
+        ArchivedDataQuery query = ArchivedDataQuery.compile(SCHEMA, fields("Customer", " AMOUNT "));
+
+        assertEquals("customer, amount, created_at, id", query.selectList());
+        Map<String, Object> row = new HashMap<>(Map.of("id", 1L, "created_at", LocalDateTime.of(2024, 1, 1, 0, 0),
+                "customer", "acme", "amount", BigDecimal.TEN, "paid", true));
+        assertEquals(List.of("customer", "amount", "created_at", "id"), new ArrayList<>(query.project(row).keySet()));
+    }
+
+    @Test
+    void rejectsUnknownColumns() {
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, fields("customer", "password")));
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("password:eq:x")));
+        // column names are only ever taken from the schema, never from the request
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, fields("id; DROP TABLE orders")));
+    }
+
+    @Test
+    void rejectsMalformedFiltersAndUnknownOperators() {
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("customer")));
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("customer:eq")));
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("customer:like:a%")));
+    }
+
+    @Test
+    void convertsFilterValuesToTheColumnType() {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+
+        ArchivedDataQuery.compile(SCHEMA, filters("id:gte:42", "amount:lt:10.5", "paid:eq:TRUE", "due_on:lte:2024-02-29",
+                "created_at:gt:2024-01-01T10:15:30", "customer:eq:a:b")).appendConditions(conditions, params);
+
+        assertEquals(List.of("id >= ?", "amount < ?", "paid = ?", "due_on <= ?", "created_at > ?", "customer = ?"), conditions);
+        assertEquals(List.of(42L, new BigDecimal("10.5"), true, LocalDate.of(2024, 2, 29),
+                LocalDateTime.of(2024, 1, 1, 10, 15, 30), "a:b"), params);
+    }
+
+    @Test
+    void rejectsValuesThatDoNotFitTheColumnType() {
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("id:eq:abc")));
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("paid:eq:yes")));
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("due_on:eq:29/02/2024")));
+        assertThrows(IllegalArgumentException.class, () -> ArchivedDataQuery.compile(SCHEMA, filters("id:in:1|two")));
+    }
+
+    @Test
+    void bindsEveryValueOfAnInList() {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+
+        ArchivedDataQuery.compile(SCHEMA, filters("id:IN:1|2|3")).appendConditions(conditions, params);
+
+        assertEquals(List.of("id IN (?, ?, ?)"), conditions);
+        assertEquals(List.of(1L, 2L, 3L), params);
+    }
+
+    @Test
+    void matchesRowsInMemoryLikeTheDatabase() {
+        ArchivedDataQuery query = ArchivedDataQuery.compile(SCHEMA, filters("amount:gte:10", "id:in:1|2",
+                "created_at:lt:2024-06-01T00:00:00"));
+        Map<String, Object> row = new HashMap<>(Map.of("id", 2, "amount", new BigDecimal("10.00"),
+                "created_at", Timestamp.valueOf(LocalDateTime.of(2024, 5, 31, 23, 59))));
+
+        assertTrue(query.matches(row));
+        row.put("id", 3L);
+        assertFalse(query.matches(row));
+        row.put("id", 1L);
+        row.put("amount", null);
+        assertFalse(query.matches(row));
+    }
+
+    private static ArchivalQueryDTO fields(String... fields) {
+        ArchivalQueryDTO queryParams = new ArchivalQueryDTO();
+        queryParams.setFields(List.of(fields));
+        return queryParams;
+    }
+
+    private static ArchivalQueryDTO filters(String... filters) {
+        ArchivalQueryDTO queryParams = new ArchivalQueryDTO();
+        queryParams.setFilter(List.of(filters));
+        return queryParams;
+    }
+}
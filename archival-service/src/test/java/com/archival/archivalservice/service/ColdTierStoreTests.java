@@ -0,0 +1,100 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.utils.ColumnarSegmentFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColdTierStoreTests {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final LocalDateTime FEBRUARY = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void seesSegmentsAnotherInstanceAddedAfterTheFirstRead() throws IOException {
+        ColdTierStore store = store();
+        assertFalse(store.overlaps("orders_archive", "created_at", null, null));
+
+        ColdTierStore.Segment segment = new ColdTierStore.Segment();
+        segment.setFile("segment-other-instance.seg");
+        segment.setTimeRanges(Map.of("created_at", new long[]{ColumnarSegmentFile.epochMicros(JANUARY),
+                ColumnarSegmentFile.epochMicros(FEBRUARY)}));
+        ColdTierStore.Manifest manifest = new ColdTierStore.Manifest();
+        manifest.getSegments().add(segment);
+        Files.createDirectories(directory.resolve("orders_archive"));
+        objectMapper.writeValue(directory.resolve("orders_archive").resolve("manifest.json").toFile(), manifest);
+
+        assertTrue(store.overlaps("orders_archive", "CREATED_AT", JANUARY.plusDays(3), null));
+        assertFalse(store.overlaps("orders_archive", "created_at", FEBRUARY.plusSeconds(1), null));
+    }
+
+    @Test
+    void recordsDeletesWithoutDroppingWhatOtherInstancesWrote() throws IOException {
+        ColdTierStore.Manifest manifest = new ColdTierStore.Manifest();
+        manifest.getSegments().add(new ColdTierStore.Segment());
+        manifest.getExportedBefore().put("created_at", FEBRUARY);
+        Files.createDirectories(directory.resolve("orders_archive"));
+        objectMapper.writeValue(directory.resolve("orders_archive").resolve("manifest.json").toFile(), manifest);
+
+        store().deleted("orders_archive", "created_at", FEBRUARY);
+
+        ColdTierStore.Manifest written = objectMapper.readValue(
+                directory.resolve("orders_archive").resolve("manifest.json").toFile(), ColdTierStore.Manifest.class);
+        assertEquals(1, written.getSegments().size());
+        assertEquals(FEBRUARY, written.getExportedBefore().get("created_at"));
+        assertEquals(FEBRUARY, written.getDeletedBefore().get("created_at"));
+        assertFalse(Files.exists(directory.resolve("orders_archive").resolve("manifest.json.tmp")));
+    }
+
+    @Test
+    void keepsAnExportPendingUntilItsRowsAreDeleted() {
+        ColdTierStore.Manifest manifest = new ColdTierStore.Manifest();
+        assertNull(manifest.pendingExport("created_at"));
+
+        manifest.getExportedBefore().put("created_at", JANUARY);
+        assertEquals(JANUARY, manifest.pendingExport("created_at"));
+
+        manifest.getDeletedBefore().put("created_at", JANUARY);
+        assertNull(manifest.pendingExport("created_at"));
+
+        // an export past the last delete is pending again, other columns have their own thresholds
+        manifest.getExportedBefore().put("created_at", FEBRUARY);
+        assertEquals(FEBRUARY, manifest.pendingExport("created_at"));
+        assertNull(manifest.pendingExport("updated_at"));
+    }
+
+    @Test
+    void readsNothingFromATableWithoutAColdTier() throws IOException {
+        List<Map<String, Object>> rows = store().read("orders_archive", "created_at", null, null,
+                (left, right) -> 0, record -> true, 10);
+
+        assertTrue(rows.isEmpty());
+        assertFalse(Files.exists(directory.resolve("orders_archive")));
+    }
+
+    private ColdTierStore store() {
+        ColdTierStore store = new ColdTierStore();
+        ReflectionTestUtils.setField(store, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        return store;
+    }
+}
@@ -0,0 +1,137 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.dto.ArchivalQueryDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentArchivalSinkTests {
+
+    private static final TableSchemaCache.TableSchema SCHEMA = new TableSchemaCache.TableSchema("orders",
+            List.of("id", "created_at", "note"), new int[]{Types.BIGINT, Types.TIMESTAMP, Types.VARCHAR}, List.of("id"));
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasAppendedInSeveralBatches() throws IOException {
+        SegmentArchivalSink sink = sink(1 << 20);
+
+        sink.write(SCHEMA, "created_at", records(0, 5));
+        sink.write(SCHEMA, "created_at", records(5, 10));
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), ids(sink.read("orders_archive",
+                query(), page(0, 100, "asc"), null)));
+        assertEquals(List.of(9L, 8L, 7L), ids(sink.read("orders_archive", query(), page(0, 3, "desc"), null)));
+        assertEquals(List.of("id"), sink.archiveSchema("orders_archive").keyColumns);
+        assertEquals(1, segmentFiles(".log").size());
+    }
+
+    @Test
+    void cutsOffATornAppendWhenTheSegmentIsReopened() throws IOException {
+        SegmentArchivalSink sink = sink(1 << 20);
+        sink.write(SCHEMA, "created_at", records(0, 3));
+        Path dataFile = segmentFiles(".log").get(0);
+        Path indexFile = segmentFiles(".idx").get(0);
+        // a crash after writing records but before indexing them, and one in the middle of an index entry
+        Files.write(dataFile, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+        Files.write(indexFile, new byte[]{7, 7, 7}, StandardOpenOption.APPEND);
+
+        sink.write(SCHEMA, "created_at", records(3, 5));
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), ids(sink.read("orders_archive", query(), page(0, 100, "asc"), null)));
+        assertEquals(0, Files.size(indexFile) % 48);
+    }
+
+    @Test
+    void appendsBehindRecordsAnotherInstanceWrote() throws IOException {
+        SegmentArchivalSink first = sink(1 << 20);
+        SegmentArchivalSink second = sink(1 << 20);
+
+        first.write(SCHEMA, "created_at", records(0, 2));
+        second.write(SCHEMA, "created_at", records(2, 4));
+        first.write(SCHEMA, "created_at", records(4, 6));
+
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), ids(second.read("orders_archive", query(), page(0, 100, "asc"), null)));
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesOnlyFullyExpiredOnes() throws IOException {
+        SegmentArchivalSink sink = sink(1);
+
+        sink.write(SCHEMA, "created_at", records(0, 3));
+        sink.write(SCHEMA, "created_at", records(3, 6));
+        assertEquals(2, segmentFiles(".log").size());
+
+        assertEquals(0, sink.deleteBefore("orders_archive", "created_at", START.plusHours(2)));
+        assertEquals(3, sink.deleteBefore("orders_archive", "created_at", START.plusHours(3)));
+
+        assertEquals(1, segmentFiles(".log").size());
+        assertEquals(List.of(3L, 4L, 5L), ids(sink.read("orders_archive", query(), page(0, 100, "asc"), null)));
+    }
+
+    @Test
+    void readsNothingFromATableThatWasNeverWritten() throws IOException {
+        SegmentArchivalSink sink = sink(1 << 20);
+
+        assertTrue(sink.read("orders_archive", query(), page(0, 10, "asc"), null).isEmpty());
+        assertEquals(0, sink.deleteBefore("orders_archive", "created_at", START));
+        assertThrows(IllegalArgumentException.class, () -> sink.archiveSchema("orders_archive"));
+    }
+
+    private SegmentArchivalSink sink(long segmentBytes) {
+        SegmentArchivalSink sink = new SegmentArchivalSink();
+        ReflectionTestUtils.setField(sink, "directory", directory.toString());
+        ReflectionTestUtils.setField(sink, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(sink, "indexInterval", 2);
+        return sink;
+    }
+
+    private List<Path> segmentFiles(String extension) throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("orders_archive"))) {
+            return files.filter(file -> file.toString().endsWith(extension)).sorted().toList();
+        }
+    }
+
+    private static List<Object[]> records(long from, long to) {
+        List<Object[]> records = new ArrayList<>();
+        for (long id = from; id < to; id++) {
+            records.add(new Object[]{id, Timestamp.valueOf(START.plusHours(id)), "order " + id});
+        }
+        return records;
+    }
+
+    private static ArchivedDataQuery query() {
+        return ArchivedDataQuery.compile(SCHEMA, new ArchivalQueryDTO());
+    }
+
+    private static ArchivalQueryDTO page(int page, int size, String sort) {
+        ArchivalQueryDTO queryParams = new ArchivalQueryDTO();
+        queryParams.setPage(page);
+        queryParams.setSize(size);
+        queryParams.setSort(sort);
+        return queryParams;
+    }
+
+    private static List<Object> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> row.get("id")).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.enums.ArchivalMode;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Types;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TableArchiverPlanTests {
+
+    private static final List<String> COLUMNS = List.of("tenant_id", "id", "created_at", "note");
+
+    private static final int[] TYPES = new int[]{Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.VARCHAR};
+
+    @Test
+    void walksTheArchivalColumnFirstAndTheKeyAfterIt() {
+        TableArchiver.TablePlan plan = plan(List.of("tenant_id", "id"), "created_at");
+
+        assertEquals(List.of("created_at", "tenant_id", "id"), plan.orderColumns);
+        assertArrayEquals(new int[]{2, 0, 1}, plan.orderIndexes);
+        assertEquals("created_at, tenant_id, id", plan.orderList);
+        assertEquals("created_at DESC, tenant_id DESC, id DESC", plan.orderListDescending);
+        assertEquals("?, ?, ?", plan.keyPlaceholders);
+        assertEquals(2, plan.columnIndex);
+    }
+
+    @Test
+    void doesNotRepeatAnArchivalColumnThatIsPartOfTheKey() {
+        TableArchiver.TablePlan plan = plan(List.of("id", "created_at"), "created_at");
+
+        assertEquals(List.of("created_at", "id"), plan.orderColumns);
+        assertEquals("?, ?", plan.keyPlaceholders);
+    }
+
+    @Test
+    void purgesBySingleAndCompositeKeys() {
+        assertEquals("DELETE FROM orders WHERE id IN (?, ?, ?)", plan(List.of("id"), "created_at").deleteByKeyQuery(3));
+
+        TableArchiver.TablePlan plan = plan(List.of("tenant_id", "id"), "created_at");
+        assertEquals("DELETE FROM orders WHERE (tenant_id, id) IN ((?, ?), (?, ?))", plan.deleteByKeyQuery(2));
+        // built once per batch size
+        assertSame(plan.deleteByKeyQuery(2), plan.deleteByKeyQuery(2));
+    }
+
+    @Test
+    void rejectsAnArchivalColumnTheTableDoesNotHave() {
+        assertThrows(IllegalArgumentException.class, () -> plan(List.of("id"), "updated_at"));
+    }
+
+    private static TableArchiver.TablePlan plan(List<String> keyColumns, String columnName) {
+        TableSchemaCache.TableSchema schema = new TableSchemaCache.TableSchema("orders", COLUMNS, TYPES, keyColumns);
+        return new TableArchiver.TablePlan(schema, "orders_archive", columnName, List.of(), ArchivalMode.CHUNKED, 100, 100, null);
+    }
+}
@@ -0,0 +1,129 @@
+package com.archival.archivalservice.service;
+
+import com.archival.archivalservice.appmodels.ArchivalCheckpoint;
+import com.archival.archivalservice.apprepository.ArchivalCheckpointRepository;
+import com.archival.archivalservice.enums.ArchivalMode;
+import com.archival.archivalservice.enums.CheckpointStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TableArchiverRecoveryTests {
+
+    private static final TableSchemaCache.TableSchema SCHEMA = new TableSchemaCache.TableSchema("orders",
+            List.of("id", "created_at"), new int[]{Types.BIGINT, Types.TIMESTAMP}, List.of("id"));
+
+    private static final LocalDateTime LOWER = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final LocalDateTime UPPER = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private final ArchivalCheckpointRepository repository = mock(ArchivalCheckpointRepository.class);
+
+    private final DataSource appDataSource = mock(DataSource.class);
+
+    private final Connection connection = mock(Connection.class);
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private final ArchivalSink sink = mock(ArchivalSink.class);
+
+    private final TableArchiver tableArchiver = new TableArchiver();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        ArchivalCheckpointService checkpoints = new ArchivalCheckpointService();
+        ReflectionTestUtils.setField(checkpoints, "archivalCheckpointRepository", repository);
+        ReflectionTestUtils.setField(tableArchiver, "archivalCheckpointService", checkpoints);
+        ReflectionTestUtils.setField(tableArchiver, "appDataSource", appDataSource);
+        when(repository.save(any(ArchivalCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(appDataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeUpdate()).thenReturn(1);
+        // the untyped key values are bound the way the driver of the app DB expects
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(statement.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(sink.isArchiveTable()).thenReturn(true);
+    }
+
+    @Test
+    void purgesTheSavedCopiedKeysInDeleteBatches() throws SQLException {
+        ArchivalCheckpoint checkpoint = checkpoint("[\"1\"]", "[\"3\"]", "[[\"2\"],[\"3\"]]");
+        when(repository.findByTableNameAndStatusOrderByIdDesc("orders", CheckpointStatus.IN_PROGRESS)).thenReturn(List.of(checkpoint));
+
+        assertNull(tableArchiver.recoverInterruptedRuns(plan(1), null));
+
+        verify(connection, times(2)).prepareStatement("DELETE FROM orders WHERE id IN (?)");
+        verify(statement, times(2)).executeUpdate();
+        assertEquals(CheckpointStatus.RECOVERED, checkpoint.getStatus());
+        assertEquals("[\"3\"]", checkpoint.getCommittedKey());
+        assertNull(checkpoint.getCopiedKeys());
+    }
+
+    @Test
+    void resumesTheLatestCheckpointOfTheSameRange() throws SQLException {
+        ArchivalCheckpoint latest = checkpoint("[\"3\"]", "[\"3\"]", null);
+        ArchivalCheckpoint older = checkpoint(null, "[\"1\"]", "[[\"1\"]]");
+        when(repository.findByTableNameAndStatusOrderByIdDesc("orders", CheckpointStatus.IN_PROGRESS)).thenReturn(List.of(latest, older));
+
+        ArchivalCheckpoint resumable = tableArchiver.recoverInterruptedRuns(plan(100), new TableArchiver.ArchivalRange(LOWER, UPPER));
+
+        // the latest one had purged everything it copied, the older one is purged and closed
+        assertSame(latest, resumable);
+        assertEquals(CheckpointStatus.IN_PROGRESS, latest.getStatus());
+        assertEquals(CheckpointStatus.RECOVERED, older.getStatus());
+        verify(connection).prepareStatement("DELETE FROM orders WHERE id IN (?)");
+    }
+
+    @Test
+    void leavesCopiedRowsThatCannotBeLookedUpInTheSink() throws SQLException {
+        when(sink.isArchiveTable()).thenReturn(false);
+        when(sink.getName()).thenReturn("segment");
+        ArchivalCheckpoint checkpoint = checkpoint("[\"1\"]", "[\"3\"]", null);
+        when(repository.findByTableNameAndStatusOrderByIdDesc("orders", CheckpointStatus.IN_PROGRESS)).thenReturn(List.of(checkpoint));
+
+        tableArchiver.recoverInterruptedRuns(plan(100), null);
+
+        verify(appDataSource, never()).getConnection();
+        assertEquals(CheckpointStatus.RECOVERED, checkpoint.getStatus());
+    }
+
+    private TableArchiver.TablePlan plan(int deleteBatchSize) {
+        return new TableArchiver.TablePlan(SCHEMA, "orders_archive", "created_at", List.of(), ArchivalMode.CHUNKED,
+                100, deleteBatchSize, sink);
+    }
+
+    private static ArchivalCheckpoint checkpoint(String committedKey, String copiedKey, String copiedKeys) {
+        ArchivalCheckpoint checkpoint = new ArchivalCheckpoint();
+        checkpoint.setTableName("orders");
+        checkpoint.setRangeLower(LOWER);
+        checkpoint.setRangeUpper(UPPER);
+        checkpoint.setCommittedKey(committedKey);
+        checkpoint.setCopiedKey(copiedKey);
+        checkpoint.setCopiedKeys(copiedKeys);
+        checkpoint.setRowsArchived(0L);
+        checkpoint.setStatus(CheckpointStatus.IN_PROGRESS);
+        return checkpoint;
+    }
+}
@@ -0,0 +1,52 @@
+package com.archival.archivalservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TableArchiverSlicesTests {
+
+    private static final LocalDateTime THRESHOLD = LocalDateTime.of(2024, 1, 10, 0, 0);
+
+    @Test
+    void cutsTheRangeIntoSlicesNewestFirst() {
+        List<TableArchiver.ArchivalRange> slices = TableArchiver.slices(new TableArchiver.ArchivalRange(null, THRESHOLD),
+                THRESHOLD.minusDays(5).plusHours(1), 2, TimeUnit.DAYS);
+
+        assertEquals(3, slices.size());
+        assertEquals(THRESHOLD, slices.get(0).upper);
+        assertEquals(THRESHOLD.minusDays(2), slices.get(0).lower);
+        assertEquals(THRESHOLD.minusDays(2), slices.get(1).upper);
+        assertEquals(THRESHOLD.minusDays(4), slices.get(1).lower);
+        // the oldest slice stays open-ended so rows older than the first lookup are not missed
+        assertEquals(THRESHOLD.minusDays(4), slices.get(2).upper);
+        assertNull(slices.get(2).lower);
+    }
+
+    @Test
+    void extendsTheOldestSliceDownToTheWatermark() {
+        LocalDateTime watermark = THRESHOLD.minusDays(3);
+
+        List<TableArchiver.ArchivalRange> slices = TableArchiver.slices(new TableArchiver.ArchivalRange(watermark, THRESHOLD),
+                watermark, 2, TimeUnit.DAYS);
+
+        assertEquals(2, slices.size());
+        assertEquals(watermark, slices.get(1).lower);
+        assertEquals(THRESHOLD.minusDays(2), slices.get(1).upper);
+    }
+
+    @Test
+    void keepsASmallRangeInOneSlice() {
+        List<TableArchiver.ArchivalRange> slices = TableArchiver.slices(new TableArchiver.ArchivalRange(null, THRESHOLD),
+                THRESHOLD.minusHours(3), 1, TimeUnit.DAYS);
+
+        assertEquals(1, slices.size());
+        assertNull(slices.get(0).lower);
+        assertEquals(THRESHOLD, slices.get(0).upper);
+    }
+}
@@ -0,0 +1,109 @@
+package com.archival.archivalservice.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarSegmentFileTests {
+
+    private static final List<String> NAMES = List.of("id", "quantity", "price", "ratio", "amount", "paid", "due_on",
+            "created_at", "payload", "note");
+
+    private static final byte[] KINDS = {ColumnarSegmentFile.LONG, ColumnarSegmentFile.INT, ColumnarSegmentFile.DOUBLE,
+            ColumnarSegmentFile.FLOAT, ColumnarSegmentFile.DECIMAL, ColumnarSegmentFile.BOOLEAN, ColumnarSegmentFile.DATE,
+            ColumnarSegmentFile.TIMESTAMP, ColumnarSegmentFile.BYTES, ColumnarSegmentFile.STRING};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryColumnKind() throws IOException {
+        Object[] first = {1L, 3, 9.75, 0.5f, new BigDecimal("1234.5600"), true, Date.valueOf(LocalDate.of(2024, 2, 29)),
+                Timestamp.valueOf(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 999999000)), new byte[]{1, 2, 3}, "zürich"};
+        Object[] second = {2L, null, null, null, null, null, null, null, null, null};
+        Path file = directory.resolve("segment-000001.seg");
+
+        ColumnarSegmentFile.write(file, NAMES, KINDS, List.of(first, second));
+        ColumnarSegmentFile.Reader reader = ColumnarSegmentFile.open(file);
+
+        assertEquals(2, reader.rowCount());
+        assertEquals(NAMES, reader.names());
+        for (int column = 0; column < NAMES.size(); column++) {
+            Object[] values = reader.readColumn(column);
+            if (first[column] instanceof byte[] bytes) {
+                assertArrayEquals(bytes, (byte[]) values[0]);
+            } else {
+                assertEquals(first[column], values[0], NAMES.get(column));
+            }
+            assertEquals(second[column], values[1], NAMES.get(column));
+        }
+        assertFalse(Files.exists(directory.resolve("segment-000001.seg.tmp")));
+    }
+
+    @Test
+    void readsSingleColumnsOfManyRows() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 0; id < 50_000; id++) {
+            rows.add(new Object[]{id, "row " + id});
+        }
+        Path file = directory.resolve("segment-000002.seg");
+
+        ColumnarSegmentFile.write(file, List.of("id", "note"), new byte[]{ColumnarSegmentFile.LONG, ColumnarSegmentFile.STRING}, rows);
+        ColumnarSegmentFile.Reader reader = ColumnarSegmentFile.open(file);
+
+        assertEquals(1, reader.indexOf("NOTE"));
+        assertEquals(-1, reader.indexOf("missing"));
+        Object[] notes = reader.readColumn(reader.indexOf("note"));
+        assertEquals("row 0", notes[0]);
+        assertEquals("row 49999", notes[49_999]);
+        assertEquals(49_999L, reader.readColumn(0)[49_999]);
+    }
+
+    @Test
+    void failsOnATruncatedColumn() throws IOException {
+        Path file = directory.resolve("segment-000003.seg");
+        ColumnarSegmentFile.write(file, List.of("note"), new byte[]{ColumnarSegmentFile.STRING},
+                List.<Object[]>of(new Object[]{"a value long enough to leave a few compressed bytes"}));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        ColumnarSegmentFile.Reader reader = ColumnarSegmentFile.open(file);
+
+        assertThrows(EOFException.class, () -> reader.readColumn(0));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotSegments() throws IOException {
+        Path file = directory.resolve("manifest.json");
+        Files.writeString(file, "{\"segments\":[]}");
+
+        assertThrows(IOException.class, () -> ColumnarSegmentFile.open(file));
+    }
+
+    @Test
+    void mapsKindsBackToJdbcTypes() {
+        for (int jdbcType : new int[]{Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.REAL, Types.NUMERIC, Types.BOOLEAN,
+                Types.DATE, Types.TIMESTAMP, Types.VARBINARY, Types.VARCHAR}) {
+            assertEquals(jdbcType, ColumnarSegmentFile.jdbcTypeOf(ColumnarSegmentFile.kindOf(jdbcType)));
+        }
+        assertEquals(ColumnarSegmentFile.STRING, ColumnarSegmentFile.kindOf(Types.OTHER));
+    }
+}
@@ -0,0 +1,105 @@
+package com.archival.archivalservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContinuationTokenTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 17, 13, 45, 12, 123456000);
+
+    @Test
+    void keepsColumnsValuesAndDirectionThroughEncoding() {
+        List<String> columns = ContinuationToken.orderColumns(List.of("tenant", "id"));
+        ContinuationToken token = ContinuationToken.after(row(CREATED_AT, "acme", 42L), true, columns);
+
+        ContinuationToken decoded = ContinuationToken.decode(token.encode());
+
+        assertTrue(decoded.isDescending());
+        assertEquals(List.of("created_at", "tenant", "id"), decoded.getColumns());
+        assertArrayEquals(new Object[]{Timestamp.valueOf(CREATED_AT), "acme", 42L}, decoded.getValues());
+    }
+
+    @Test
+    void keepsNullsAndDecimals() {
+        ContinuationToken token = new ContinuationToken(false, List.of("created_at", "amount"),
+                new Object[]{null, new BigDecimal("12.50")});
+
+        ContinuationToken decoded = ContinuationToken.decode(token.encode());
+
+        assertArrayEquals(new Object[]{null, new BigDecimal("12.50")}, decoded.getValues());
+    }
+
+    @Test
+    void ordersOnCreatedAtOnlyOnce() {
+        assertEquals(List.of("created_at", "id"), ContinuationToken.orderColumns(List.of("id", "CREATED_AT")));
+        assertEquals(List.of("created_at"), ContinuationToken.orderColumns(List.of()));
+    }
+
+    @Test
+    void resumesAfterItsRowInEitherDirection() {
+        List<String> columns = ContinuationToken.orderColumns(List.of("id"));
+        Map<String, Object> last = row(CREATED_AT, "acme", 10L);
+        ContinuationToken ascending = ContinuationToken.after(last, false, columns);
+        ContinuationToken descending = ContinuationToken.after(last, true, columns);
+
+        assertTrue(ascending.isFollowedBy(row(CREATED_AT, "acme", 11L)));
+        assertTrue(ascending.isFollowedBy(row(CREATED_AT.plusSeconds(1), "acme", 1L)));
+        assertFalse(ascending.isFollowedBy(last));
+        assertTrue(descending.isFollowedBy(row(CREATED_AT, "acme", 9L)));
+        assertFalse(descending.isFollowedBy(row(CREATED_AT.plusNanos(1000), "acme", 1L)));
+    }
+
+    @Test
+    void rejectsTokensItDidNotIssue() {
+        String token = new ContinuationToken(false, List.of("created_at", "id"), new Object[]{CREATED_AT, 7L}).encode();
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode("not a token!"));
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(""));
+
+        byte[] otherVersion = bytes.clone();
+        otherVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode(otherVersion)));
+
+        byte[] truncated = new byte[bytes.length - 3];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode(truncated)));
+
+        byte[] trailing = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, trailing, 0, bytes.length);
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode(trailing)));
+    }
+
+    @Test
+    void rejectsLengthsBeyondTheToken() {
+        // version, ascending, one column "id" of kind STRING claiming a value of 2 GB
+        byte[] bytes = {1, 0, 1, 0, 2, 'i', 'd', 10, 1, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode(bytes)));
+    }
+
+    private static Map<String, Object> row(LocalDateTime createdAt, String tenant, long id) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("created_at", createdAt);
+        row.put("tenant", tenant);
+        row.put("id", id);
+        return row;
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,77 @@
+package com.archival.archivalservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionBoundsTests {
+
+    @Test
+    void readsTimestampBounds() {
+        String bound = "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')";
+
+        assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0), PartitionBounds.lower(bound));
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), PartitionBounds.upper(bound));
+    }
+
+    @Test
+    void readsDateBounds() {
+        String bound = "FOR VALUES FROM ('2024-03-01') TO ('2024-04-01')";
+
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), PartitionBounds.lower(bound));
+        assertEquals(LocalDateTime.of(2024, 4, 1, 0, 0), PartitionBounds.upper(bound));
+    }
+
+    @Test
+    void leavesOpenBoundsUnset() {
+        String bound = "FOR VALUES FROM (MINVALUE) TO ('2024-01-01 00:00:00')";
+
+        assertNull(PartitionBounds.lower(bound));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0), PartitionBounds.upper(bound));
+        assertNull(PartitionBounds.upper("FOR VALUES FROM ('2024-01-01 00:00:00') TO (MAXVALUE)"));
+    }
+
+    @Test
+    void convertsTimestamptzBoundsToLocalTime() {
+        // timestamptz bounds are printed with an hour offset only, unless the zone has minutes
+        String bound = "FOR VALUES FROM ('2024-01-01 00:00:00+00') TO ('2024-01-01 12:00:00+05:30')";
+
+        assertEquals(local(OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)), PartitionBounds.lower(bound));
+        assertEquals(local(OffsetDateTime.of(2024, 1, 1, 12, 0, 0, 0, ZoneOffset.ofHoursMinutes(5, 30))),
+                PartitionBounds.upper(bound));
+    }
+
+    @Test
+    void convertsNegativeOffsets() {
+        String bound = "FOR VALUES FROM ('2024-06-30 22:00:00-04') TO ('2024-07-31 22:00:00-04')";
+
+        assertEquals(local(OffsetDateTime.of(2024, 6, 30, 22, 0, 0, 0, ZoneOffset.ofHours(-4))), PartitionBounds.lower(bound));
+    }
+
+    @Test
+    void ignoresBoundsThatAreNotTimestampRanges() {
+        assertNull(PartitionBounds.lower("DEFAULT"));
+        assertNull(PartitionBounds.lower("FOR VALUES IN ('eu', 'us')"));
+        assertNull(PartitionBounds.lower("FOR VALUES FROM (1000) TO (2000)"));
+        assertNull(PartitionBounds.upper("FOR VALUES FROM ('a') TO ('b')"));
+    }
+
+    @Test
+    void recognizesTheDefaultPartition() {
+        assertTrue(PartitionBounds.isDefault("DEFAULT"));
+        assertFalse(PartitionBounds.isDefault("FOR VALUES FROM (MINVALUE) TO (MAXVALUE)"));
+        assertFalse(PartitionBounds.isDefault(null));
+    }
+
+    private static LocalDateTime local(OffsetDateTime dateTime) {
+        return dateTime.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,42 @@
+-- Table: public.student_archive, range-partitioned by month on created_at
+
+ALTER TABLE IF EXISTS public.student_archive RENAME TO student_archive_unpartitioned;
+ALTER TABLE IF EXISTS public.student_archive_unpartitioned RENAME CONSTRAINT student_archive_pkey TO student_archive_unpartitioned_pkey;
+
+CREATE TABLE IF NOT EXISTS public.student_archive (
+                                                      id BIGINT NOT NULL,
+                                                      name CHARACTER VARYING(255) COLLATE pg_catalog."default" NOT NULL,
+                                                      email CHARACTER VARYING(255) COLLATE pg_catalog."default" NOT NULL,
+                                                      date_of_birth DATE NOT NULL,
+                                                      archived_at TIMESTAMP WITHOUT TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+                                                      created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                                      modified_at TIMESTAMP WITHOUT TIME ZONE,
+                                                      CONSTRAINT student_archive_pkey PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- one partition per month from the oldest archived row up to the current month,
+-- named like the partitions the archival service creates ahead of time
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+    last_month TIMESTAMP;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(created_at), CURRENT_TIMESTAMP)),
+           date_trunc('month', GREATEST(COALESCE(MAX(created_at), CURRENT_TIMESTAMP), CURRENT_TIMESTAMP))
+    INTO month_start, last_month
+    FROM public.student_archive_unpartitioned;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS public.%I PARTITION OF public.student_archive FOR VALUES FROM (%L) TO (%L)',
+                       'student_archive_p' || to_char(month_start, 'YYYYMM'), month_start, month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO public.student_archive (id, name, email, date_of_birth, archived_at, created_at, modified_at)
+SELECT id, name, email, date_of_birth, archived_at, created_at, modified_at
+FROM public.student_archive_unpartitioned;
+
+DROP TABLE IF EXISTS public.student_archive_unpartitioned;
+
+ALTER TABLE IF EXISTS public.student_archive OWNER TO postgres;
@@ -0,0 +1,21 @@
+-- Table: public.archive_rollups, hourly rollups of the archived rows of every table,
+-- kept up to date by the archival service as it archives. column_name '*' holds the row count
+-- of the hour, the other rows the statistics of one numeric rollup column.
+
+CREATE TABLE IF NOT EXISTS public.archive_rollups (
+                                                      table_name CHARACTER VARYING(255) NOT NULL,
+                                                      bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+                                                      column_name CHARACTER VARYING(255) NOT NULL,
+                                                      record_count BIGINT NOT NULL,
+                                                      min_value NUMERIC,
+                                                      max_value NUMERIC,
+                                                      sum_value NUMERIC,
+                                                      CONSTRAINT archive_rollups_pkey PRIMARY KEY (table_name, bucket_start, column_name)
+);
+
+-- rows archived before the rollups were kept
+INSERT INTO public.archive_rollups (table_name, bucket_start, column_name, record_count)
+SELECT 'student', date_trunc('hour', created_at), '*', COUNT(*)
+FROM public.student_archive
+GROUP BY 2
+ON CONFLICT (table_name, bucket_start, column_name) DO NOTHING;
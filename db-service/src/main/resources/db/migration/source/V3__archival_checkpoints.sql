@@ -0,0 +1,24 @@
+-- Table: public.archival_checkpoints
+
+-- DROP TABLE IF EXISTS public.archival_checkpoints;
+
+CREATE TABLE IF NOT EXISTS public.archival_checkpoints (
+                                                           id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+                                                           table_name CHARACTER VARYING(255) COLLATE pg_catalog."default" NOT NULL,
+    run_id CHARACTER VARYING(64) COLLATE pg_catalog."default" NOT NULL,
+    range_lower TIMESTAMP WITHOUT TIME ZONE,
+    range_upper TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    committed_key TEXT COLLATE pg_catalog."default",
+    copied_key TEXT COLLATE pg_catalog."default",
+    copied_keys TEXT COLLATE pg_catalog."default",
+    rows_archived BIGINT NOT NULL DEFAULT 0,
+    status CHARACTER VARYING(32) COLLATE pg_catalog."default" NOT NULL,
+    created_date_time TIMESTAMP WITHOUT TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_date_time TIMESTAMP WITHOUT TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT archival_checkpoints_pkey PRIMARY KEY (id)
+    ) TABLESPACE pg_default;
+
+CREATE INDEX IF NOT EXISTS archival_checkpoints_table_status_idx
+    ON public.archival_checkpoints (table_name, status);
+
+ALTER TABLE IF EXISTS public.archival_checkpoints OWNER TO postgres;
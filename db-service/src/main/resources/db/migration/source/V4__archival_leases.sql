@@ -0,0 +1,13 @@
+-- Table: public.archival_leases
+
+-- DROP TABLE IF EXISTS public.archival_leases;
+
+CREATE TABLE IF NOT EXISTS public.archival_leases (
+                                                      table_name CHARACTER VARYING(255) COLLATE pg_catalog."default" NOT NULL,
+    owner CHARACTER VARYING(255) COLLATE pg_catalog."default" NOT NULL,
+    expires_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    finished_at TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT archival_leases_pkey PRIMARY KEY (table_name)
+    ) TABLESPACE pg_default;
+
+ALTER TABLE IF EXISTS public.archival_leases OWNER TO postgres;
@@ -0,0 +1,19 @@
+-- Table: public.archival_criteria, per table archival settings. Every column is optional,
+-- the archival service uses its defaults for the ones left null.
+
+ALTER TABLE IF EXISTS public.archival_criteria
+    ADD COLUMN IF NOT EXISTS archival_mode CHARACTER VARYING(255) COLLATE pg_catalog."default",
+    ADD COLUMN IF NOT EXISTS chunk_size INTEGER,
+    ADD COLUMN IF NOT EXISTS worker_count INTEGER,
+    ADD COLUMN IF NOT EXISTS slice_size INTEGER,
+    ADD COLUMN IF NOT EXISTS slice_time_unit CHARACTER VARYING(255) COLLATE pg_catalog."default",
+    ADD COLUMN IF NOT EXISTS delete_batch_size INTEGER,
+    ADD COLUMN IF NOT EXISTS min_chunk_size INTEGER,
+    ADD COLUMN IF NOT EXISTS max_chunk_size INTEGER,
+    ADD COLUMN IF NOT EXISTS target_chunk_millis INTEGER,
+    ADD COLUMN IF NOT EXISTS max_chunk_delay_millis INTEGER,
+    ADD COLUMN IF NOT EXISTS max_active_sessions INTEGER,
+    ADD COLUMN IF NOT EXISTS archive_partition_unit CHARACTER VARYING(255) COLLATE pg_catalog."default",
+    ADD COLUMN IF NOT EXISTS archival_sink CHARACTER VARYING(255) COLLATE pg_catalog."default",
+    ADD COLUMN IF NOT EXISTS rollup_columns CHARACTER VARYING(255) COLLATE pg_catalog."default",
+    ADD COLUMN IF NOT EXISTS last_archived_threshold TIMESTAMP WITHOUT TIME ZONE;